@@ -0,0 +1,55 @@
+package benchmark;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import prediction.*;
+
+/**
+ * Battle.predict on square battles of several sizes, both cold (the cache
+ * emptied before every call, so the whole battle is calculated) and warm
+ * (the battle already cached, so only the answer is built).  Battles of
+ * more than Battle.STEADY_CELLS cells go through the closed form.  The
+ * table built into the jar is turned off, so battles are always calculated;
+ * TableBenchmark reads them from it instead.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BattleBenchmark {
+	@Param({"10", "30", "60", "100"})
+	public int size;
+
+	/**
+	 * Empties the cache before each call of cold()
+	 */
+	@State(Scope.Benchmark)
+	public static class Cold {
+		@Setup(Level.Invocation)
+		public void clear() {
+			Battle.clearCache();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void warmUp() {
+		Battle.useTable(null);
+		Battle.clearCache();
+		Battle.predict(size, size);
+	}
+
+	@Benchmark
+	public BattleOutcomeSet cold(Cold c) {
+		return Battle.predict(size, size);
+	}
+
+	@Benchmark
+	public BattleOutcomeSet warm() {
+		return Battle.predict(size, size);
+	}
+}
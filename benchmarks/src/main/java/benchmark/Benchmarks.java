@@ -0,0 +1,22 @@
+package benchmark;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with JMH's GC profiler always on, so every result
+ * comes with its allocation rate (gc.alloc.rate.norm is bytes allocated per
+ * operation).  Takes the usual JMH command line, for example a regular
+ * expression picking benchmarks, or -p size=30 to fix a parameter.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,46 @@
+package benchmark;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import fraction.*;
+import prediction.*;
+
+/**
+ * The dice probabilities: looking every one of them up through DiceOutcome,
+ * and working them all out from scratch by making a RuleSet, which is where
+ * the counting of rolls now happens.
+ *
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiceBenchmark {
+	@Benchmark
+	public int probability() {
+		int h = 0;
+		for (int a = 1; a <= DiceOutcome.MAX_A_DICE; a++) {
+			for (int d = 1; d <= DiceOutcome.MAX_D_DICE; d++) {
+				for (int w = 0; w <= Math.min(a, d); w++) {
+					h += DiceOutcome.probability(a, d, w).hashCode();
+				}
+			}
+		}
+		return h;
+	}
+
+	@Benchmark
+	public RuleSet standardRules() {
+		return new RuleSet(DiceOutcome.DIE_SIDES, DiceOutcome.DIE_SIDES, DiceOutcome.MAX_A_DICE, DiceOutcome.MAX_D_DICE, false);
+	}
+
+	@Benchmark
+	public RuleSet bigRules() {
+		return new RuleSet(12, 12, 5, 4, false);
+	}
+}
@@ -0,0 +1,68 @@
+package benchmark;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import fraction.*;
+import prediction.*;
+
+/**
+ * Fraction arithmetic on the kind of numbers battles produce: small ones
+ * that fit in longs (a single roll) and big ones (the chance of winning a
+ * 30 on 30 battle).  Fractions change in place, so every call works on a
+ * fresh copy; reduce() is lazy, so reduce looks at the numerator to make
+ * it happen.
+ *
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FractionBenchmark {
+	@Param({"small", "big"})
+	public String kind;
+
+	private Fraction x;
+	private Fraction y;
+	//x times a common factor, not reduced
+	private Fraction unreduced;
+
+	@Setup
+	public void setUp() {
+		if (kind.equals("small")) {
+			x = new Fraction(581, 1296);
+			y = new Fraction(295, 1296);
+		} else {
+			x = Battle.probVictory(30, 30, 1);
+			y = Battle.probVictory(30, 25, 1);
+		}
+		BigInteger k = y.getBigDenominator();
+		unreduced = new Fraction(x.getBigNumerator().multiply(k), x.getBigDenominator().multiply(k));
+	}
+
+	@Benchmark
+	public Fraction add() {
+		Fraction f = new Fraction(x);
+		f.add(y);
+		return f;
+	}
+
+	@Benchmark
+	public Fraction multiply() {
+		Fraction f = new Fraction(x);
+		f.multiply(y);
+		return f;
+	}
+
+	@Benchmark
+	public BigInteger reduce() {
+		Fraction f = new Fraction(unreduced);
+		f.reduce();
+		return f.getBigNumerator();
+	}
+}
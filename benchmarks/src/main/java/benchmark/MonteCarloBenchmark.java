@@ -0,0 +1,43 @@
+package benchmark;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import prediction.*;
+
+/**
+ * MonteCarloBattle rolling out 4096 battles on one thread.  Rolling
+ * allocates nothing, so gc.alloc.rate.norm should be the tallies alone,
+ * whatever the size of the battle.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonteCarloBenchmark {
+	@Param({"10", "100"})
+	public int size;
+
+	private ForkJoinPool pool;
+	private long seed;
+
+	@Setup
+	public void setUp() {
+		pool = new ForkJoinPool(1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public SimulatedOutcomeDistribution simulate() {
+		return MonteCarloBattle.simulate(RuleSet.STANDARD, size, size, 4096, seed++, pool);
+	}
+}
@@ -0,0 +1,59 @@
+package benchmark;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import fraction.*;
+import prediction.*;
+
+/**
+ * The BattleOutcomeSet operations the old calculation leaned on, on the
+ * outcome sets of square battles: merging one set into a copy of another,
+ * cloneMultiply, and printing.  The copy merged into is made by cloneMultiply
+ * by one, since the copy constructor shares all but the first outcome and
+ * merging into it would change the original; subtract cloneMultiply to get
+ * the merge alone.
+ *
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutcomeSetBenchmark {
+	@Param({"10", "30"})
+	public int size;
+
+	private BattleOutcomeSet set;
+	//a set with mostly the same outcomes
+	private BattleOutcomeSet other;
+	private Fraction factor;
+	private Fraction one = new Fraction(1, 1);
+
+	@Setup
+	public void setUp() {
+		set = Battle.predict(size, size);
+		other = Battle.predict(size, size - 1);
+		factor = DiceOutcome.probability(3, 2, 1);
+	}
+
+	@Benchmark
+	public BattleOutcomeSet merge() {
+		BattleOutcomeSet s = set.cloneMultiply(one);
+		s.merge(other);
+		return s;
+	}
+
+	@Benchmark
+	public BattleOutcomeSet cloneMultiply() {
+		return set.cloneMultiply(factor);
+	}
+
+	@Benchmark
+	public String print() {
+		return set.toString();
+	}
+}
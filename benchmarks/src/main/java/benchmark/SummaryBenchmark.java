@@ -0,0 +1,50 @@
+package benchmark;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import prediction.*;
+
+/**
+ * Summary statistics of square battles of several sizes: summarizing a
+ * cached distribution (OutcomeDistribution.summary()), reading a quantile
+ * off a finished summary, and filling the moment-only table
+ * (BattleMoments.compute()) from nothing.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SummaryBenchmark {
+	@Param({"10", "30", "60", "100"})
+	public int size;
+
+	private OutcomeDistribution distribution;
+	private OutcomeSummary summary;
+
+	@Setup(Level.Trial)
+	public void warmUp() {
+		Battle.clearCache();
+		distribution = Battle.predictDistribution(size, size);
+		summary = distribution.summary();
+	}
+
+	@Benchmark
+	public OutcomeSummary summary() {
+		return distribution.summary();
+	}
+
+	@Benchmark
+	public BattleOutcome quantile() {
+		return summary.quantile(0.1);
+	}
+
+	@Benchmark
+	public BattleMoments moments() {
+		return BattleMoments.compute(size, size);
+	}
+}
@@ -0,0 +1,43 @@
+package benchmark;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import prediction.*;
+
+/**
+ * Battle.predict on square battles served from the table built into the
+ * jar (see BattleTable.bundled()), with the cache emptied before every call
+ * so each battle is decoded from the table, against the same battles
+ * calculated cold in BattleBenchmark.  The sizes must be in the table.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableBenchmark {
+	@Param({"10", "30"})
+	public int size;
+
+	@Setup(Level.Trial)
+	public void open() {
+		BattleTable t = BattleTable.bundled();
+		if (t == null || !t.contains(size, size))
+			throw new RuntimeException("No bundled table up to " + size);
+		Battle.useTable(t);
+	}
+
+	@Setup(Level.Invocation)
+	public void clear() {
+		Battle.clearCache();
+	}
+
+	@Benchmark
+	public BattleOutcomeSet bundled() {
+		return Battle.predict(size, size);
+	}
+}
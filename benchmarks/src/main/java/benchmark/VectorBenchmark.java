@@ -0,0 +1,40 @@
+package benchmark;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import prediction.*;
+
+/**
+ * ApproximateBattle.probVictory on square grids with the scalar kernel and
+ * with the Vector API kernel (see ApproximateBattle.useVectorKernel()).
+ * The fork runs with --add-modules jdk.incubator.vector so both are there;
+ * the answers are identical, only the time differs.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class VectorBenchmark {
+	@Param({"1000", "4000"})
+	public int size;
+
+	@Param({"scalar", "vector"})
+	public String kernel;
+
+	@Setup(Level.Trial)
+	public void choose() {
+		boolean vector = kernel.equals("vector");
+		if (ApproximateBattle.useVectorKernel(vector) != vector)
+			throw new RuntimeException("No vector kernel in this JVM");
+	}
+
+	@Benchmark
+	public double probVictory() {
+		return ApproximateBattle.probVictory(size, size, 1);
+	}
+}
@@ -0,0 +1,481 @@
+import prediction.*;
+import fraction.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Scanner;
+
+/**
+ * RiskRisk is intended for use while playing the game Risk.  It helps you
+ * make informed decisions based on the true probabilities of certain
+ * game-crucial events.  Enjoy.
+ * 
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL2 is distributed with this program as gpl.txt.
+ */
+public class RiskRisk {
+	private static BattleOutcomeSet b;
+	private static int attackers;
+	private static int defenders;
+	private static int mode = Battle.EXACT;
+	private static RuleSet rules = RuleSet.STANDARD;
+	private static Scanner s = new Scanner(System.in);
+	
+	/**
+	 * Interaction etc
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		System.out.println("RiskRisk Beta 1\nCopyright (C) 2005 Eric Stein");
+		if (Metrics.ENABLED)
+			Metrics.register();
+		String[] grid = null;
+		for (int i = 0; i + 1 < args.length; i++) {
+			if (args[i].equals("-table"))
+				loadTable(args[++i]);
+			else if (args[i].equals("-cache"))
+				Battle.setCacheBudget(Long.parseLong(args[++i]) << 20);
+			else if (args[i].equals("-mode"))
+				mode = args[++i].equals("approximate") ? Battle.APPROXIMATE : Battle.EXACT;
+			else if (args[i].equals("-format"))
+				setFormat(args[++i]);
+			else if (args[i].equals("-digits"))
+				Fraction.default_digits = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-serve")) {
+				serve(Integer.parseInt(args[++i]));
+				return;
+			} else if (args[i].equals("-grid") && i + 4 < args.length) {
+				grid = new String[4];
+				System.arraycopy(args, i + 1, grid, 0, 4);
+				i += 4;
+			}
+		}
+		if (grid != null) {
+			writeGrid(Integer.parseInt(grid[0]), Integer.parseInt(grid[1]), Integer.parseInt(grid[2]), grid[3]);
+			return;
+		}
+		printHelp();
+		String c;
+		try {
+			while (true) {
+				try {
+					boolean cmd = false;
+					c = s.nextLine();
+					if (c.equals("help")) {
+						printHelp();
+						cmd = true;
+					} 
+					if (c.equals("invade")) {
+						if (mode == Battle.APPROXIMATE) {
+							getArmies();
+							ApproximateOutcomeDistribution o = ApproximateBattle.predict(rules, attackers, defenders);
+							if (o == null) {
+								System.out.println("Nothing to calculate.");
+							} else {
+								System.out.println("End outcomes:");
+								System.out.println(o);
+							}
+						} else {
+							getOutcome();
+							if (b == null) {
+								System.out.println("Nothing to calculate.");
+							} else {
+								System.out.println("End outcomes:");
+								print(b);
+							}
+						}
+						cmd = true;
+					} 
+					if (c.equals("summary")) {
+						getArmies();
+						summary();
+						cmd = true;
+					} 
+					if (c.equals("retreat")) {
+						getArmies();
+						System.out.println("Stop attacking when down to how many armies?");
+						retreat(s.nextInt());
+						cmd = true;
+					} 
+					if (c.equals("mode")) {
+						System.out.println("Enter one of the following: exact,approximate");
+						c = s.nextLine();
+						if (c.equals("exact")) {
+							if (rules.isSmooth())
+								mode = Battle.EXACT;
+							else
+								System.out.println("These dice can only be calculated approximately.");
+						}
+						if (c.equals("approximate"))
+							mode = Battle.APPROXIMATE;
+						cmd = true;
+					} 
+					if (c.equals("rules")) {
+						System.out.println("Enter attacking die sides, defending die sides, most attacking dice and most defending dice (standard: 6 6 3 2):");
+						int as = s.nextInt();
+						int ds = s.nextInt();
+						int ad = s.nextInt();
+						int dd = s.nextInt();
+						System.out.println("Who wins ties? Enter one of the following: attacker,defender");
+						boolean ties = s.next().equals("attacker");
+						try {
+							rules = RuleSet.of(as, ds, ad, dd, ties);
+						} catch (RuntimeException e) {
+							System.out.println(e.getMessage());
+						}
+						System.out.println("Rules: " + rules);
+						if (!rules.isSmooth() && mode == Battle.EXACT) {
+							System.out.println("These dice can only be calculated approximately.  Switching to approximate mode.");
+							mode = Battle.APPROXIMATE;
+						}
+						cmd = true;
+					} 
+					if (c.equals("format")) {
+						System.out.println("Enter one of the following: fraction,decimal,both");
+						setFormat(s.nextLine());
+						cmd = true;
+					} 
+					if (c.equals("digits")) {
+						System.out.println("Enter the significant digits for decimals (0 for as many as a double holds):");
+						Fraction.default_digits = Math.max(s.nextInt(), 0);
+						cmd = true;
+					} 
+					if (c.equals("victory")) {
+						getArmies();
+						System.out.println("Probability of successful invasion: " + victory(1));
+						cmd = true;
+					} 
+					if (c.equals("goodvictory")) {
+						System.out.println("How many attacking armies (minimum) must survive the invasion?");
+						int n = s.nextInt();
+						getArmies();
+						System.out.println("Probability of successful invasion with " + n + " armies remaining (minimum): " + victory(n));
+						cmd = true;
+					} 
+					if (c.equals("needed")) {
+						System.out.println("Whose armies? Enter one of the following: attacker,defender");
+						needed(s.next());
+						cmd = true;
+					} 
+					if (c.equals("policy")) {
+						getArmies();
+						System.out.println("What should the attack aim for? Enter one of the following: victory,survivors,difference");
+						policy(s.next());
+						cmd = true;
+					} 
+					if (c.equals("simulate")) {
+						getArmies();
+						System.out.println("How close to the true probability of victory should the estimate be (for example 0.001)?");
+						simulate(s.nextDouble());
+						cmd = true;
+					} 
+					if (c.equals("cache")) {
+						System.out.println(Battle.getCacheStats());
+						cmd = true;
+					} 
+					if (c.equals("metrics")) {
+						System.out.println(Metrics.text());
+						cmd = true;
+					} 
+					if (c.equals("quit")) {
+						System.out.println("Terminating. Goodbye.");
+						System.exit(0);
+					} 
+					if (c.equals("license")) {
+						System.out.println("\nThis program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License version 2 as published by the Free Software Foundation.  The GPL is also included in this distribution as the file gpl.txt.\n\nThe sourcecode for this program should be included in the distribution.  If not, visit http://toba.ath.cx:724/.");
+						cmd = true;
+					} 
+					if (c.equals("extraction")) {
+						System.out.println("\nGNU/Linux: unzip riskrisk.jar\nWindows: rename riskrisk.jar to riskrisk.zip and open with WinZip or equivalent\nOther: the jar file is in zip format.  Find a utility which that can extract from zip and use it.");
+						cmd = true;
+					}
+					if (c.equals("")) {
+						cmd = true;
+					}
+					if (cmd == false) {
+						System.out.println("No such command: " + c);
+					}
+				} catch (java.util.InputMismatchException e) {
+					System.out.println("Bad input.");
+				}
+			}
+		} catch (java.lang.OutOfMemoryError e) {
+			System.out.println("RiskRisk has exhausted the allocated memory.  Use 'java -XmxXXXm -jar riskrisk.jar' where XXX is the number of megabytes to allocate.");
+		}
+	}
+	
+	/**
+	 * Opens a precomputed table of battles (see prediction.BattleTable) and
+	 * serves battles from it
+	 * @param file
+	 */
+	private static void loadTable(String file) {
+		try {
+			BattleTable t = BattleTable.open(new java.io.File(file));
+			if (t.getKind() == Battle.EXACT) {
+				Battle.useTable(t);
+			} else {
+				ApproximateBattle.useTable(t);
+			}
+			System.out.println("Using table " + file + " for up to " + t.getAttackers() + " attackers and " + t.getDefenders() + " defenders");
+		} catch (java.io.IOException e) {
+			System.out.println("Cannot use table " + file + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Answers queries over HTTP instead of interactively (see RiskRiskServer)
+	 * @param port
+	 */
+	private static void serve(int port) {
+		try {
+			com.sun.net.httpserver.HttpServer server = RiskRiskServer.start(port);
+			System.out.println("Serving on http://localhost:" + server.getAddress().getPort() + "/ (predict, probVictory, minimumAttackers, minimumDefenders, stats)");
+		} catch (java.io.IOException e) {
+			System.out.println("Cannot serve on port " + port + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Sets the numerical output format: fraction, decimal or both
+	 * @param c
+	 */
+	private static void setFormat(String c) {
+		if (c.equals("fraction"))
+			Fraction.default_print = Fraction.PRINT_FRACTION;
+		if (c.equals("decimal"))
+			Fraction.default_print = Fraction.PRINT_DECIMAL;
+		if (c.equals("both"))
+			Fraction.default_print = Fraction.PRINT_BOTH;
+	}
+	
+	/**
+	 * Writes the probability of victory with at least n armies remaining for
+	 * every battle up to a attackers and d defenders to a file, as CSV if the
+	 * name ends in .csv and binary otherwise (see Grid).
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param file
+	 */
+	private static void writeGrid(int a, int d, int n, String file) {
+		try {
+			if (file.endsWith(".csv")) {
+				java.io.Writer w = new java.io.BufferedWriter(new java.io.FileWriter(file));
+				try {
+					Grid.victory(rules, 2, a, 1, d, n, mode, new CsvGridSink(w, Fraction.default_print));
+				} finally {
+					w.close();
+				}
+			} else {
+				java.io.OutputStream o = new java.io.BufferedOutputStream(new java.io.FileOutputStream(file));
+				try {
+					Grid.victory(rules, 2, a, 1, d, n, mode, new BinaryGridSink(o));
+				} finally {
+					o.close();
+				}
+			}
+			System.out.println("Wrote probabilities of victory for up to " + a + " attackers and " + d + " defenders to " + file);
+		} catch (java.io.IOException e) {
+			System.out.println("Cannot write " + file + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Print program help to the standard out
+	 */
+	private static void printHelp() {
+		System.out.println("\nVery large battles can take an extremely long time or cause the program to run out of memory.\nAll commands are typed without their arguments.  Arguments should be entered when requested.\n\nCommands:\n\thelp - displays this help screen\n\tinvade - shows all possible endgames and their exact probabilities\n\tsummary - shows the expected survivors, their variances and the median and 10th percentile endgames\n\tretreat - shows the endgames and their exact probabilities when the attacker stops at a given number of armies\n\tformat - change numerical output settings\n\tdigits - change the number of significant digits shown in decimals\n\tmode - choose exact or approximate (much faster) calculation\n\trules - choose house rules for the dice\n\tvictory - calculate probability of victory\n\tgoodvictory - calculate probability of invasion with at least the given number of armies surviving\n\tneeded - find the fewest armies that win (or hold) with a given probability\n\tpolicy - find when to stop attacking and how many dice to roll for the best result\n\tsimulate - estimate the outcomes by rolling out many battles, for battles too big to calculate\n\tcache - show how much the cache holds and how often it helped\n\tmetrics - show how many calculations were done and how long they took (run with -Driskrisk.metrics=true)\n\tquit - close RiskRisk\n\tlicense - licensing and legal information\n\textraction - information on how to extract source code and the GPL from the distribution\n\nTo write a table of probabilities of victory without interaction, run with -grid attackers defenders survivors file (.csv for text, binary otherwise).\nTo answer queries over HTTP instead (predict, probVictory, minimumAttackers, minimumDefenders and stats), run with -serve port.");
+	}
+	
+	/**
+	 * User interaction for getting the outcome into the class variable b
+	 */
+	private static void getOutcome() {
+		getArmies();
+		b = Battle.predict(rules, attackers, defenders);
+	}
+	
+	/**
+	 * Prints a set of outcomes a line at a time, through one buffer, so big
+	 * sets are never built up as one string
+	 * @param o outcomes, or null if there was nothing to calculate
+	 */
+	private static void print(BattleOutcomeSet o) {
+		if (o == null) {
+			System.out.println("Nothing to calculate.");
+			return;
+		}
+		Writer w = new BufferedWriter(new OutputStreamWriter(System.out));
+		try {
+			o.writeTo(w);
+			w.write('\n');
+			w.flush();
+		} catch (IOException e) {
+			System.out.println("Cannot print: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Prints summary statistics of the armies entered: with quantiles from
+	 * the exact outcomes, or just the moments in approximate mode
+	 */
+	private static void summary() {
+		if (mode == Battle.APPROXIMATE) {
+			BattleMoments m = BattleMoments.compute(rules, attackers, defenders);
+			System.out.println((m == null) ? "Nothing to calculate." : m.toString());
+		} else {
+			OutcomeDistribution o = Battle.predictDistribution(rules, attackers, defenders);
+			System.out.println((o == null) ? "Nothing to calculate." : o.summary().toString());
+		}
+	}
+	
+	/**
+	 * Prints the outcomes of the armies entered when the attacker stops
+	 * attacking once down to k armies.  Always exact, so not for dice that
+	 * can only be calculated approximately.
+	 * @param k
+	 */
+	private static void retreat(int k) {
+		if (!rules.isSmooth()) {
+			System.out.println("These dice can only be calculated approximately.");
+			return;
+		}
+		BattleOutcomeSet o = Battle.predict(rules, attackers, defenders, k);
+		if (o == null) {
+			System.out.println("Nothing to calculate.");
+			return;
+		}
+		System.out.println("End outcomes:");
+		print(o);
+	}
+	
+	/**
+	 * The probability of victory with at least n armies remaining for the
+	 * armies entered, as a string in the current mode
+	 * @param n
+	 */
+	private static String victory(int n) {
+		if (mode == Battle.APPROXIMATE) {
+			double p = ApproximateBattle.probVictory(rules, attackers, defenders, n);
+			return Double.isNaN(p) ? "nothing to calculate" : p + "";
+		}
+		Fraction f = Battle.probVictory(rules, attackers, defenders, n);
+		return (f == null) ? "nothing to calculate" : f.toString();
+	}
+	
+	/**
+	 * User interaction for finding the fewest armies one side needs, in the
+	 * current mode, and prints them
+	 * @param side attacker or defender
+	 */
+	private static void needed(String side) {
+		if (mode == Battle.EXACT && !rules.isSmooth()) {
+			System.out.println("These dice can only be calculated approximately.");
+			return;
+		}
+		int n;
+		if (side.equals("attacker")) {
+			System.out.println("Enter defending armies, probability of victory (for example 0.9) and attacking armies (minimum) that must survive:");
+			int d = s.nextInt();
+			double p = s.nextDouble();
+			int k = s.nextInt();
+			if (mode == Battle.APPROXIMATE)
+				n = ApproximateBattle.minimumAttackers(rules, d, p, k);
+			else
+				n = Battle.minimumAttackers(rules, d, p, k);
+		} else if (side.equals("defender")) {
+			System.out.println("Enter attacking armies and probability of holding (for example 0.9):");
+			int a = s.nextInt();
+			double p = s.nextDouble();
+			if (mode == Battle.APPROXIMATE)
+				n = ApproximateBattle.minimumDefenders(rules, a, p);
+			else
+				n = Battle.minimumDefenders(rules, a, p);
+		} else {
+			System.out.println("No such side: " + side);
+			return;
+		}
+		if (n < 0)
+			System.out.println("No number of armies will do.");
+		else
+			System.out.println("Armies needed: " + n);
+	}
+	
+	/**
+	 * Solves for the best play of the armies entered and prints what to do
+	 * @param aim victory, survivors or difference (see Objective)
+	 */
+	private static void policy(String aim) {
+		Objective o;
+		if (aim.equals("victory")) {
+			System.out.println("How many attacking armies (minimum) must survive the invasion?");
+			o = Objective.victory(s.nextInt());
+		} else if (aim.equals("survivors")) {
+			System.out.println("How many armies is conquering the territory worth?");
+			o = Objective.survivors(s.nextDouble());
+		} else if (aim.equals("difference")) {
+			o = Objective.armyDifference();
+		} else {
+			System.out.println("No such aim: " + aim);
+			return;
+		}
+		AttackPolicy p = AttackPolicy.solve(rules, attackers, defenders, o);
+		if (p == null) {
+			System.out.println("Nothing to solve.");
+			return;
+		}
+		System.out.println(p);
+		if (defenders > 0) {
+			int t = p.threshold(defenders);
+			if (t < 0) {
+				System.out.println("Do not attack " + defenders + " defenders with " + attackers + " armies or fewer.");
+			} else if (p.isThreshold(defenders)) {
+				System.out.println("Against " + defenders + " defenders, attack with " + t + " to " + attackers + " armies and stop with fewer.");
+			} else {
+				System.out.println("Against " + defenders + " defenders, what to do does not go by a threshold:");
+				//runs of attacker counts with the same decision
+				int from = 1;
+				for (int i = 2; i <= attackers + 1; i++) {
+					if (i <= attackers && p.dice(i, defenders) == p.dice(from, defenders))
+						continue;
+					int k = p.dice(from, defenders);
+					String what = (k == AttackPolicy.STOP) ? "stop" : "roll " + k + ((k == 1) ? " die" : " dice");
+					System.out.println("\t" + ((from == i - 1) ? from + ((from == 1) ? " army" : " armies") : from + " to " + (i - 1) + " armies") + ": " + what);
+					from = i;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Rolls out battles of the armies entered until the probability of
+	 * victory is known to within precision, 95% of the time, and prints the
+	 * estimates
+	 * @param precision
+	 */
+	private static void simulate(double precision) {
+		SimulatedOutcomeDistribution o = MonteCarloBattle.simulate(rules, attackers, defenders, 1, precision, Long.MAX_VALUE, System.nanoTime(), java.util.concurrent.ForkJoinPool.commonPool());
+		if (o == null) {
+			System.out.println("Nothing to simulate.");
+			return;
+		}
+		double[] i = o.probVictoryInterval(1, MonteCarloBattle.Z95);
+		System.out.println("End outcomes (95% intervals):");
+		System.out.println(o);
+		System.out.println("Probability of successful invasion: " + o.probVictory(1) + " (" + i[0] + " to " + i[1] + ") from " + o.getTrials() + " battles");
+	}
+	
+	/**
+	 * User interaction for getting the army numbers into the class variables
+	 * attackers and defenders
+	 */
+	private static void getArmies() {
+		System.out.println("Enter attacking and defending army numbers:");
+		attackers = s.nextInt();
+		defenders = s.nextInt();
+		System.out.println("Attacking Armies: " + attackers + " Defending Armies: " + defenders);
+	}
+}
\ No newline at end of file
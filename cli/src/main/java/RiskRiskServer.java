@@ -0,0 +1,444 @@
+import prediction.*;
+import fraction.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers battle queries over HTTP on the local machine, so other programs
+ * can ask one warm process instead of starting a JVM per lookup.  Every
+ * request runs on its own virtual thread (on Java 21 and later; before that
+ * on a pool of ordinary threads), and all of them share Battle's cache.
+ * Identical requests that arrive while one is still being answered wait
+ * for that answer instead of calculating it again, whatever order their
+ * parameters are given in.
+ *
+ * Endpoints (GET, answers in JSON):
+ * <pre>
+ *   /predict?attackers=A&defenders=D[&mode=exact|approximate]
+ *       every final outcome and its probability
+ *   /probVictory?attackers=A&defenders=D[&survivors=N][&mode=exact|approximate]
+ *       the probability of winning with at least N (default 1) armies left
+ *   /minimumAttackers?defenders=D&probability=P[&survivors=N]
+ *       the fewest attackers that win with at least N (default 1) armies
+ *       left with probability at least P
+ *   /minimumDefenders?attackers=A&probability=P
+ *       the fewest defenders that hold with probability at least P
+ *   /stats
+ *       the cache's statistics
+ * </pre>
+ * Exact probabilities are given as a "n/d" string and as a decimal.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL2 is distributed with this program as gpl.txt.
+ */
+public class RiskRiskServer {
+	/** answers being worked out, by request */
+	private static final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<String, CompletableFuture<String>>();
+	/** answers worked out rather than waited for, for tests */
+	static final AtomicLong answered = new AtomicLong();
+
+	/**
+	 * Starts serving on the loopback address.
+	 * @param port 0 for any free port
+	 * @return the running server, whose address has the port actually used
+	 * @throws IOException if the port cannot be bound
+	 */
+	public static HttpServer start(int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/predict", new Endpoint() {
+			String key(Map<String, String> q) {
+				return "predict " + intParam(q, "attackers") + " " + intParam(q, "defenders") + " " + mode(q);
+			}
+			String answer(Map<String, String> q) {
+				return predict(q);
+			}
+		});
+		server.createContext("/probVictory", new Endpoint() {
+			String key(Map<String, String> q) {
+				return "probVictory " + intParam(q, "attackers") + " " + intParam(q, "defenders") + " " + intParam(q, "survivors", 1) + " " + mode(q);
+			}
+			String answer(Map<String, String> q) {
+				return probVictory(q);
+			}
+		});
+		server.createContext("/minimumAttackers", new Endpoint() {
+			String key(Map<String, String> q) {
+				return "minimumAttackers " + intParam(q, "defenders") + " " + doubleParam(q, "probability") + " " + intParam(q, "survivors", 1);
+			}
+			String answer(Map<String, String> q) {
+				return minimumAttackers(q);
+			}
+		});
+		server.createContext("/minimumDefenders", new Endpoint() {
+			String key(Map<String, String> q) {
+				return "minimumDefenders " + intParam(q, "attackers") + " " + doubleParam(q, "probability");
+			}
+			String answer(Map<String, String> q) {
+				return minimumDefenders(q);
+			}
+		});
+		server.createContext("/stats", new Endpoint() {
+			String key(Map<String, String> q) {
+				return "stats";
+			}
+			String answer(Map<String, String> q) {
+				return stats();
+			}
+		});
+		server.setExecutor(executor());
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Serves until killed
+	 * @param args port, 8080 if not given
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+		HttpServer server = start(port);
+		System.out.println("RiskRisk serving on http://localhost:" + server.getAddress().getPort() + "/");
+	}
+
+	/**
+	 * One new virtual thread per request if the JVM has them, otherwise a
+	 * pool of ordinary threads that grows as needed.  Looked up by name so
+	 * the build can still target Java versions without them.
+	 */
+	private static ExecutorService executor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Handles a GET on one endpoint: reads the query, coalesces it with an
+	 * identical one in flight, and writes the JSON answer.  Bad queries get
+	 * a 400 with an error message.
+	 */
+	private static abstract class Endpoint implements HttpHandler {
+		/**
+		 * The request as a string made from the parameters the endpoint
+		 * reads, once parsed, so the same request is the same string
+		 * whatever order, spelling or extra parameters it came with
+		 * @param q
+		 * @throws IllegalArgumentException if the query is bad
+		 */
+		abstract String key(Map<String, String> q);
+
+		/**
+		 * Works out the JSON answer to a query
+		 * @param q
+		 * @throws IllegalArgumentException if the query is bad
+		 */
+		abstract String answer(Map<String, String> q);
+
+		public void handle(HttpExchange x) throws IOException {
+			int status = 200;
+			String body;
+			try {
+				if (!x.getRequestMethod().equals("GET")) {
+					status = 405;
+					body = error("Only GET is supported");
+				} else {
+					Map<String, String> q = parse(x.getRequestURI().getRawQuery());
+					body = coalesce(key(q), q);
+				}
+			} catch (IllegalArgumentException e) {
+				status = 400;
+				body = error(e.getMessage());
+			} catch (RuntimeException e) {
+				status = 500;
+				body = error(e.toString());
+			} catch (OutOfMemoryError e) {
+				status = 503;
+				body = error("Out of memory");
+			}
+			byte[] b = body.getBytes(StandardCharsets.UTF_8);
+			x.getResponseHeaders().set("Content-Type", "application/json");
+			x.sendResponseHeaders(status, b.length);
+			OutputStream out = x.getResponseBody();
+			try {
+				out.write(b);
+			} finally {
+				out.close();
+			}
+		}
+
+		/**
+		 * Answers the query, or waits for the answer if the same request is
+		 * already being answered
+		 * @param key the request
+		 * @param q
+		 */
+		private String coalesce(String key, Map<String, String> q) {
+			CompletableFuture<String> f = new CompletableFuture<String>();
+			CompletableFuture<String> running = inFlight.putIfAbsent(key, f);
+			if (running == null) {
+				answered.incrementAndGet();
+				try {
+					f.complete(answer(q));
+				} catch (Throwable t) {
+					f.completeExceptionally(t);
+				} finally {
+					inFlight.remove(key, f);
+				}
+				running = f;
+			}
+			try {
+				return running.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				Throwable t = e.getCause();
+				if (t instanceof RuntimeException)
+					throw (RuntimeException)t;
+				if (t instanceof Error)
+					throw (Error)t;
+				throw new RuntimeException(t);
+			}
+		}
+	}
+
+	/**
+	 * The answer to /predict
+	 * @param q
+	 */
+	private static String predict(Map<String, String> q) {
+		int a = intParam(q, "attackers");
+		int d = intParam(q, "defenders");
+		StringBuilder b = new StringBuilder();
+		b.append("{\"attackers\":").append(a).append(",\"defenders\":").append(d);
+		if (mode(q) == Battle.APPROXIMATE) {
+			ApproximateOutcomeDistribution o = ApproximateBattle.predict(a, d);
+			if (o == null)
+				throw new IllegalArgumentException("No such battle");
+			b.append(",\"mode\":\"approximate\",\"outcomes\":[");
+			boolean first = true;
+			for (int i = d; i > 0; i--) {
+				first = outcome(b, first, 1, i, o.probability(1, i));
+			}
+			for (int i = 0; i <= a; i++) {
+				first = outcome(b, first, i, 0, o.probability(i, 0));
+			}
+		} else {
+			OutcomeDistribution o = Battle.predictDistribution(a, d);
+			if (o == null)
+				throw new IllegalArgumentException("No such battle");
+			b.append(",\"mode\":\"exact\",\"outcomes\":[");
+			boolean first = true;
+			for (int i = d; i > 0; i--) {
+				first = outcome(b, first, 1, i, o.probability(1, i));
+			}
+			for (int i = 0; i <= a; i++) {
+				first = outcome(b, first, i, 0, o.probability(i, 0));
+			}
+		}
+		return b.append("]}").toString();
+	}
+
+	/**
+	 * The answer to /probVictory
+	 * @param q
+	 */
+	private static String probVictory(Map<String, String> q) {
+		int a = intParam(q, "attackers");
+		int d = intParam(q, "defenders");
+		int n = intParam(q, "survivors", 1);
+		StringBuilder b = new StringBuilder();
+		b.append("{\"attackers\":").append(a).append(",\"defenders\":").append(d).append(",\"survivors\":").append(n);
+		if (mode(q) == Battle.APPROXIMATE) {
+			double p = ApproximateBattle.probVictory(a, d, n);
+			if (Double.isNaN(p))
+				throw new IllegalArgumentException("No such battle");
+			b.append(",\"mode\":\"approximate\",\"decimal\":").append(p);
+		} else {
+			Fraction f = Battle.probVictory(a, d, n);
+			if (f == null)
+				throw new IllegalArgumentException("No such battle");
+			b.append(",\"mode\":\"exact\",");
+			probability(b, f);
+		}
+		return b.append('}').toString();
+	}
+
+	/**
+	 * The answer to /minimumAttackers
+	 * @param q
+	 */
+	private static String minimumAttackers(Map<String, String> q) {
+		int d = intParam(q, "defenders");
+		double p = doubleParam(q, "probability");
+		int n = intParam(q, "survivors", 1);
+		int a = Battle.minimumAttackers(d, p, n);
+		if (a < 0)
+			throw new IllegalArgumentException("No number of attackers will do");
+		return "{\"defenders\":" + d + ",\"probability\":" + p + ",\"survivors\":" + n + ",\"attackers\":" + a + "}";
+	}
+
+	/**
+	 * The answer to /minimumDefenders
+	 * @param q
+	 */
+	private static String minimumDefenders(Map<String, String> q) {
+		int a = intParam(q, "attackers");
+		double p = doubleParam(q, "probability");
+		int d = Battle.minimumDefenders(a, p);
+		if (d < 0)
+			throw new IllegalArgumentException("No number of defenders will do");
+		return "{\"attackers\":" + a + ",\"probability\":" + p + ",\"defenders\":" + d + "}";
+	}
+
+	/**
+	 * The answer to /stats
+	 */
+	private static String stats() {
+		CacheStats s = Battle.getCacheStats();
+		return "{\"cells\":" + s.getCells() + ",\"bytes\":" + s.getWeight() + ",\"budget\":" + s.getBudget()
+			+ ",\"hits\":" + s.getHits() + ",\"misses\":" + s.getMisses() + ",\"evictions\":" + s.getEvictions() + "}";
+	}
+
+	/**
+	 * Appends an exact outcome if it can happen, returning whether nothing has been appended yet
+	 */
+	private static boolean outcome(StringBuilder b, boolean first, int a, int d, Fraction f) {
+		if (f.isZero())
+			return first;
+		if (!first)
+			b.append(',');
+		b.append("{\"attackers\":").append(a).append(",\"defenders\":").append(d).append(',');
+		probability(b, f);
+		b.append('}');
+		return false;
+	}
+
+	/**
+	 * Appends an approximate outcome if it can happen, returning whether nothing has been appended yet
+	 */
+	private static boolean outcome(StringBuilder b, boolean first, int a, int d, double p) {
+		if (p == 0)
+			return first;
+		if (!first)
+			b.append(',');
+		b.append("{\"attackers\":").append(a).append(",\"defenders\":").append(d).append(",\"decimal\":").append(p).append('}');
+		return false;
+	}
+
+	/**
+	 * Appends an exact probability as "probability" and "decimal" members
+	 */
+	private static void probability(StringBuilder b, Fraction f) {
+		b.append("\"probability\":\"").append(f.toString(Fraction.PRINT_FRACTION)).append("\",\"decimal\":").append(f.toDouble());
+	}
+
+	/**
+	 * A JSON error message
+	 * @param message
+	 */
+	private static String error(String message) {
+		StringBuilder b = new StringBuilder("{\"error\":\"");
+		for (int i = 0; i < message.length(); i++) {
+			char c = message.charAt(i);
+			if (c == '"' || c == '\\')
+				b.append('\\');
+			if (c >= ' ')
+				b.append(c);
+		}
+		return b.append("\"}").toString();
+	}
+
+	/**
+	 * The calculation mode asked for, exact if none
+	 * @param q
+	 */
+	private static int mode(Map<String, String> q) {
+		String m = q.get("mode");
+		if (m == null || m.equals("exact"))
+			return Battle.EXACT;
+		if (m.equals("approximate"))
+			return Battle.APPROXIMATE;
+		throw new IllegalArgumentException("No such mode: " + m);
+	}
+
+	/**
+	 * An integer parameter that must be given
+	 * @param q
+	 * @param name
+	 * @throws IllegalArgumentException if it is missing or not a number
+	 */
+	private static int intParam(Map<String, String> q, String name) {
+		if (q.get(name) == null)
+			throw new IllegalArgumentException("Missing " + name);
+		return intParam(q, name, 0);
+	}
+
+	/**
+	 * A decimal parameter that must be given
+	 * @param q
+	 * @param name
+	 * @throws IllegalArgumentException if it is missing or not a number
+	 */
+	private static double doubleParam(Map<String, String> q, String name) {
+		String v = q.get(name);
+		if (v == null)
+			throw new IllegalArgumentException("Missing " + name);
+		try {
+			return Double.parseDouble(v);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number: " + name);
+		}
+	}
+
+	/**
+	 * An integer parameter
+	 * @param q
+	 * @param name
+	 * @param missing the value if it is not given
+	 * @throws IllegalArgumentException if it is not a number
+	 */
+	private static int intParam(Map<String, String> q, String name, int missing) {
+		String v = q.get(name);
+		if (v == null)
+			return missing;
+		try {
+			return Integer.parseInt(v);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number: " + name);
+		}
+	}
+
+	/**
+	 * Splits a raw query string into its decoded parameters
+	 * @param query null if none
+	 */
+	private static Map<String, String> parse(String query) {
+		Map<String, String> q = new HashMap<String, String>();
+		if (query == null)
+			return q;
+		for (String p : query.split("&")) {
+			int e = p.indexOf('=');
+			if (e > 0)
+				q.put(URLDecoder.decode(p.substring(0, e), StandardCharsets.UTF_8), URLDecoder.decode(p.substring(e + 1), StandardCharsets.UTF_8));
+		}
+		return q;
+	}
+}
@@ -0,0 +1,153 @@
+import prediction.*;
+import fraction.*;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts RiskRiskServer on a free port of localhost and queries it over
+ * HTTP.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class RiskRiskServerTest {
+	private static HttpServer server;
+
+	@BeforeAll
+	public static void start() throws IOException {
+		server = RiskRiskServer.start(0);
+	}
+
+	@AfterAll
+	public static void stop() {
+		server.stop(0);
+	}
+
+	@Test
+	public void predict() throws IOException {
+		Response r = get("/predict?attackers=5&defenders=3");
+		assertEquals(200, r.status, r.body);
+		assertTrue(r.body.startsWith("{\"attackers\":5,\"defenders\":3,\"mode\":\"exact\",\"outcomes\":["), r.body);
+		OutcomeDistribution o = Battle.predictDistribution(5, 3);
+		for (int i = 2; i <= 5; i++) {
+			String outcome = "{\"attackers\":" + i + ",\"defenders\":0,\"probability\":\"" + o.probability(i, 0).toString(Fraction.PRINT_FRACTION) + "\"";
+			assertTrue(r.body.contains(outcome), outcome + " in " + r.body);
+		}
+		r = get("/predict?attackers=5&defenders=3&mode=approximate");
+		assertEquals(200, r.status, r.body);
+		assertTrue(r.body.contains("\"mode\":\"approximate\""), r.body);
+	}
+
+	@Test
+	public void probVictory() throws IOException {
+		Response r = get("/probVictory?attackers=10&defenders=7&survivors=3");
+		assertEquals(200, r.status, r.body);
+		Fraction f = Battle.probVictory(10, 7, 3);
+		assertEquals("{\"attackers\":10,\"defenders\":7,\"survivors\":3,\"mode\":\"exact\",\"probability\":\"" + f.toString(Fraction.PRINT_FRACTION) + "\",\"decimal\":" + f.toDouble() + "}", r.body);
+		r = get("/probVictory?attackers=10&defenders=7&mode=approximate");
+		assertEquals(200, r.status, r.body);
+		assertTrue(r.body.endsWith(",\"decimal\":" + ApproximateBattle.probVictory(10, 7, 1) + "}"), r.body);
+	}
+
+	@Test
+	public void badQueries() throws IOException {
+		String[] bad = {
+			"/predict?attackers=5",
+			"/predict?attackers=five&defenders=3",
+			"/predict?attackers=0&defenders=0",
+			"/probVictory?attackers=5&defenders=3&mode=guess",
+			"/minimumAttackers?defenders=5&probability=often",
+			"/minimumDefenders?attackers=5&probability=1"
+		};
+		for (int i = 0; i < bad.length; i++) {
+			Response r = get(bad[i]);
+			assertEquals(400, r.status, bad[i] + " " + r.body);
+			assertTrue(r.body.startsWith("{\"error\":"), r.body);
+		}
+	}
+
+	@Test
+	public void duplicatesCoalesce() throws Exception {
+		//a battle slow enough that the duplicates arrive while it is worked out,
+		//asked for in different orders, spellings and with stray parameters
+		final String[] same = {
+			"/probVictory?attackers=2000&defenders=2000",
+			"/probVictory?defenders=2000&attackers=2000",
+			"/probVictory?attackers=2000&defenders=2000&survivors=1",
+			"/probVictory?attackers=02000&defenders=2000&x=1",
+			"/probVictory?mode=exact&defenders=%32000&attackers=2000"
+		};
+		final CountDownLatch go = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(2 * same.length);
+		try {
+			long before = RiskRiskServer.answered.get();
+			List<Future<Response>> answers = new ArrayList<Future<Response>>();
+			for (int i = 0; i < 2 * same.length; i++) {
+				final String path = same[i % same.length];
+				answers.add(pool.submit(new Callable<Response>() {
+					public Response call() throws Exception {
+						go.await();
+						return get(path);
+					}
+				}));
+			}
+			go.countDown();
+			String body = null;
+			for (Future<Response> f : answers) {
+				Response r = f.get(5, TimeUnit.MINUTES);
+				assertEquals(200, r.status, r.body);
+				if (body == null)
+					body = r.body;
+				assertEquals(body, r.body);
+			}
+			assertEquals(1, RiskRiskServer.answered.get() - before);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * GETs a path from the server
+	 */
+	private static Response get(String path) throws IOException {
+		HttpURLConnection c = (HttpURLConnection)new URL("http://localhost:" + server.getAddress().getPort() + path).openConnection();
+		try {
+			Response r = new Response();
+			r.status = c.getResponseCode();
+			InputStream in = (r.status < 400) ? c.getInputStream() : c.getErrorStream();
+			ByteArrayOutputStream b = new ByteArrayOutputStream();
+			try {
+				in.transferTo(b);
+			} finally {
+				in.close();
+			}
+			r.body = b.toString(StandardCharsets.UTF_8);
+			return r;
+		} finally {
+			c.disconnect();
+		}
+	}
+
+	private static class Response {
+		int status;
+		String body;
+	}
+}
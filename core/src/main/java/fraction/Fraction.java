@@ -0,0 +1,461 @@
+package fraction;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Class to represent fraction objects.  Does not allow itself to hold invalid
+ * fractions, and all negative fractions are shown to be negative by a negative
+ * numerator.
+ *
+ * Small fractions are kept in a pair of longs and only switch over to
+ * BigIntegers when an operation would overflow.  Reduction is lazy: reduce()
+ * only marks the fraction for reduction, which happens once the numbers grow
+ * past REDUCE_BITS bits.  Looking at the numerator, the denominator or the
+ * string works out the reduced values without writing them back, so a
+ * Fraction that is only read may be shared between threads, and what is
+ * printed never changes what later arithmetic gives.
+ *
+ * Decimals are printed to default_digits significant digits, or as a
+ * double if that is 0.  Up to DOUBLE_DIGITS digits come from toDouble(),
+ * which for big fractions divides out only the 55 bits a double needs;
+ * more digits take an exact BigDecimal division to just that many digits.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL2 is distributed with this program as gpl.txt.
+ */
+public class Fraction {
+	/** bit length past which a fraction marked for reduction is actually reduced */
+	public static final int REDUCE_BITS = 256;
+	/** the biggest magnitude a long can hold exactly as a double */
+	private static final long EXACT_DOUBLE = 1L << 53;
+
+	/** store the value of the numerator, if small */
+	private long num;
+	/** store the value of the denominator, if small */
+	private long den;
+	/** store the value of the numerator, null if small */
+	private BigInteger numerator;
+	/** store the value of the denominator, null if small */
+	private BigInteger denominator;
+	/** true if reduce() has been called and not yet carried out */
+	private boolean reducePending;
+
+	public static final int PRINT_FRACTION = 1;
+	public static final int PRINT_DECIMAL = 2;
+	public static final int PRINT_BOTH = PRINT_FRACTION + PRINT_DECIMAL;
+	public static int default_print = PRINT_BOTH;
+	/** most significant digits a double is trusted for */
+	public static final int DOUBLE_DIGITS = 15;
+	/** significant digits of printed decimals, 0 to print the double as it is */
+	public static int default_digits = 0;
+
+	/**
+	 * generate a fraction object with no errors
+	 * @param n
+	 * @param d
+	 * @throws Exception if the denominator is not a positive integer
+	 */
+	public Fraction(long n, long d) {
+		if (d < 1) throw new RuntimeException ("Invalid denominator");
+		num = n;
+		den = d;
+	}
+
+	/**
+	 * generate a fraction object with no errors
+	 * @param n
+	 * @param d
+	 * @throws Exception if the denominator is not a positive integer
+	 */
+	public Fraction(BigInteger n, BigInteger d) {
+		if (d.signum() < 1) throw new RuntimeException ("Invalid denominator");
+		set(n, d);
+	}
+
+	/**
+	 * generate a fraction object from another fraction object (copy constructor)
+	 * @param obj
+	 */
+	public Fraction(Fraction obj) {
+		num = obj.num;
+		den = obj.den;
+		numerator = obj.numerator;
+		denominator = obj.denominator;
+		reducePending = obj.reducePending;
+	}
+
+	/**
+	 * gets the numerator
+	 * @return numerator
+	 */
+	public long getNumerator() {
+		Fraction s = settled();
+		return s.isBig() ? s.numerator.longValue() : s.num;
+	}
+
+	/**
+	 * gets the denominator
+	 * @return denominator
+	 */
+	public long getDenominator() {
+		Fraction s = settled();
+		return s.isBig() ? s.denominator.longValue() : s.den;
+	}
+
+	/**
+	 * gets the numerator without truncating it to a long
+	 * @return numerator
+	 */
+	public BigInteger getBigNumerator() {
+		Fraction s = settled();
+		return s.isBig() ? s.numerator : BigInteger.valueOf(s.num);
+	}
+
+	/**
+	 * gets the denominator without truncating it to a long
+	 * @return denominator
+	 */
+	public BigInteger getBigDenominator() {
+		Fraction s = settled();
+		return s.isBig() ? s.denominator : BigInteger.valueOf(s.den);
+	}
+
+	/**
+	 * determines whether the fraction is zero
+	 * @return true if the numerator is zero
+	 */
+	public boolean isZero() {
+		return isBig() ? numerator.signum() == 0 : num == 0;
+	}
+
+	/**
+	 * sets the numerator
+	 * @param i
+	 */
+	public void setNumerator(long i) {
+		settle();
+		if (isBig()) {
+			set(BigInteger.valueOf(i), denominator);
+		} else {
+			num = i;
+		}
+	}
+
+	/**
+	 * sets the denominator
+	 * @param i
+	 * @throws Exception if i is not a positive integer
+	 */
+	public void setDenominator(long i) {
+		if (i < 1) {
+			throw new RuntimeException ("Denominator must be a positive integer.");
+		} else {
+			settle();
+			if (isBig()) {
+				set(numerator, BigInteger.valueOf(i));
+			} else {
+				den = i;
+			}
+		}
+	}
+
+	/**
+	 * perform floating point division with the numerator and denominator, producing decimal form
+	 * @return double representing fraction
+	 */
+	public double toDouble() {
+		if (!isBig() && Math.abs(num) <= EXACT_DOUBLE && den <= EXACT_DOUBLE) {
+			//both convert exactly, so one division rounds correctly
+			return (double)num / (double)den;
+		}
+		BigInteger n = bigNumerator();
+		if (n.signum() == 0)
+			return 0;
+		BigInteger d = bigDenominator();
+		//shift so the quotient has 55 or 56 bits: 53 for the double, a
+		//rounding bit, and the lowest bit made sticky if anything is left over
+		int shift = 55 - (n.bitLength() - d.bitLength());
+		BigInteger[] qr = (shift >= 0) ? n.abs().shiftLeft(shift).divideAndRemainder(d) : n.abs().divideAndRemainder(d.shiftLeft(-shift));
+		long q = qr[0].longValue();
+		if (qr[1].signum() != 0)
+			q |= 1;
+		double r = Math.scalb((double)q, -shift);
+		if (r != 0 && Math.getExponent(r) < Double.MIN_EXPONENT) {
+			//subnormal, where scaling would round a second time
+			return toBigDecimal().doubleValue();
+		}
+		return (n.signum() < 0) ? -r : r;
+	}
+
+	/**
+	 * sets fraction object to the reciprocal of itself
+	 * @throws Exception if the numerator is currently zero (division by zero)
+	 */
+	public void invert() {
+		if (isZero()) throw new RuntimeException ("Cannot invert: numerator is zero");
+
+		if (!isBig() && num != Long.MIN_VALUE) {
+			long t = den;
+			den = num;
+			num = t;
+			if (den < 0) {
+				den = -den;
+				num = -num;
+			}
+			return;
+		}
+
+		BigInteger n = bigNumerator();
+		BigInteger d = bigDenominator();
+		if (n.signum() < 0) {
+			set(d.negate(), n.negate());
+		} else {
+			set(d, n);
+		}
+	}
+
+	/**
+	 * adds the fraction f to the fraction, avoiding too large an increase in the denominator.
+	 * @param f
+	 */
+	public void add(Fraction f) {
+		if (!isBig() && !f.isBig()) {
+			try {
+				long lcm = Math.multiplyExact(den / gcd(den, f.den), f.den);
+				num = Math.addExact(Math.multiplyExact(num, lcm / den), Math.multiplyExact(f.num, lcm / f.den));
+				den = lcm;
+				settleIfLarge();
+				if (FractionMetrics.ENABLED)
+					count(FractionMetrics.FRACTION_ADD);
+				return;
+			} catch (ArithmeticException e) {
+				//overflowed, do it with BigIntegers
+			}
+		}
+		BigInteger d = bigDenominator();
+		BigInteger fd = f.bigDenominator();
+		BigInteger lcm = d.multiply(fd).divide(d.gcd(fd));
+		set(bigNumerator().multiply(lcm).divide(d).add(f.bigNumerator().multiply(lcm).divide(fd)), lcm);
+		settleIfLarge();
+		if (FractionMetrics.ENABLED)
+			count(FractionMetrics.FRACTION_ADD);
+	}
+
+	/**
+	 * multiplies the fraction f into the fraction.  Does not reduce unless
+	 * reduce() has been called and the result has grown large.
+	 * @param f
+	 */
+	public void multiply(Fraction f) {
+		if (!isBig() && !f.isBig()) {
+			try {
+				long n = Math.multiplyExact(num, f.num);
+				den = Math.multiplyExact(den, f.den);
+				num = n;
+				settleIfLarge();
+				if (FractionMetrics.ENABLED)
+					count(FractionMetrics.FRACTION_MULTIPLY);
+				return;
+			} catch (ArithmeticException e) {
+				//overflowed, do it with BigIntegers
+			}
+		}
+		set(bigNumerator().multiply(f.bigNumerator()), bigDenominator().multiply(f.bigDenominator()));
+		settleIfLarge();
+		if (FractionMetrics.ENABLED)
+			count(FractionMetrics.FRACTION_MULTIPLY);
+	}
+
+	/**
+	 * Marks the fraction to be reduced to simplest form using the greatest
+	 * common divisor of numerator and denominator.  The reduction itself waits
+	 * until the fraction grows past REDUCE_BITS or is looked at.
+	 */
+	public void reduce() {
+		reducePending = true;
+		settleIfLarge();
+	}
+
+	/**
+	 * Represent the fraction as a string using hte default display type
+	 */
+	public String toString() {
+		return toString(default_print);
+	}
+
+	/**
+	 * represents the fraction as a string - using the specified display type
+	 * @return string representing fraction
+	 */
+	public String toString(int type) {
+		StringBuilder b = new StringBuilder();
+		try {
+			writeTo(b, type, default_digits);
+		} catch (IOException e) {
+			//a StringBuilder does not throw
+		}
+		return b.toString();
+	}
+
+	/**
+	 * writes the fraction to out, in the same form as toString(type)
+	 * @param out
+	 * @param type display type
+	 * @param digits significant digits of the decimal, 0 to write the double as it is
+	 * @throws IOException if out does
+	 */
+	public void writeTo(Appendable out, int type, int digits) throws IOException {
+		if (type != PRINT_FRACTION && type != PRINT_DECIMAL && type != PRINT_BOTH)
+			throw new RuntimeException("No such display type:" + type);
+		if (type != PRINT_DECIMAL) {
+			Fraction s = settled();
+			if (s.isZero()) {
+				out.append('0');
+			} else if (s.isBig()) {
+				out.append(s.numerator.toString());
+				if (!s.denominator.equals(BigInteger.ONE))
+					out.append('/').append(s.denominator.toString());
+			} else {
+				out.append(Long.toString(s.num));
+				if (s.den != 1)
+					out.append('/').append(Long.toString(s.den));
+			}
+		}
+		if (type == PRINT_DECIMAL) {
+			out.append(decimal(digits));
+		} else if (type == PRINT_BOTH) {
+			out.append(" (").append(decimal(digits)).append(')');
+		}
+	}
+
+	/**
+	 * the value as a decimal string
+	 * @param digits significant digits, 0 to give the double as it is
+	 */
+	private String decimal(int digits) {
+		if (digits <= 0)
+			return Double.toString(toDouble());
+		if (digits <= DOUBLE_DIGITS) {
+			double v = toDouble();
+			if (v == 0)
+				return "0";
+			return new BigDecimal(v).round(new MathContext(digits, RoundingMode.HALF_EVEN)).toString();
+		}
+		return new BigDecimal(bigNumerator()).divide(new BigDecimal(bigDenominator()), new MathContext(digits, RoundingMode.HALF_EVEN)).toString();
+	}
+
+	/**
+	 * Produce a BigDecimal representation of the fraction
+	 */
+	public BigDecimal toBigDecimal() {
+		return (new BigDecimal(bigNumerator())).divide(new BigDecimal(bigDenominator()), 200, BigDecimal.ROUND_HALF_EVEN);
+	}
+
+	/**
+	 * Counts an operation and the size of its result (see FractionMetrics)
+	 * @param op
+	 */
+	private void count(int op) {
+		if (isBig()) {
+			FractionMetrics.record(op, Math.max(numerator.bitLength(), denominator.bitLength()));
+		} else {
+			FractionMetrics.record(op, Long.SIZE - Long.numberOfLeadingZeros(Math.max(Math.abs(num), den)));
+		}
+	}
+
+	/**
+	 * true when the value is held in BigIntegers rather than longs
+	 */
+	private boolean isBig() {
+		return numerator != null;
+	}
+
+	/**
+	 * the numerator as a BigInteger, without carrying out a pending reduction
+	 */
+	private BigInteger bigNumerator() {
+		return isBig() ? numerator : BigInteger.valueOf(num);
+	}
+
+	/**
+	 * the denominator as a BigInteger, without carrying out a pending reduction
+	 */
+	private BigInteger bigDenominator() {
+		return isBig() ? denominator : BigInteger.valueOf(den);
+	}
+
+	/**
+	 * Stores the given value, in longs if both fit.  The denominator must be positive.
+	 * @param n
+	 * @param d
+	 */
+	private void set(BigInteger n, BigInteger d) {
+		if (n.bitLength() < Long.SIZE && d.bitLength() < Long.SIZE) {
+			num = n.longValue();
+			den = d.longValue();
+			numerator = null;
+			denominator = null;
+		} else {
+			numerator = n;
+			denominator = d;
+		}
+	}
+
+	/**
+	 * Carries out a pending reduction if the numbers have grown past REDUCE_BITS
+	 */
+	private void settleIfLarge() {
+		if (reducePending && isBig() && Math.max(numerator.bitLength(), denominator.bitLength()) > REDUCE_BITS)
+			settle();
+	}
+
+	/**
+	 * This fraction if nothing is pending, otherwise a reduced copy.  Never
+	 * changes this fraction, so readers need no locking.
+	 */
+	private Fraction settled() {
+		if (!reducePending)
+			return this;
+		Fraction f = new Fraction(this);
+		f.settle();
+		return f;
+	}
+
+	/**
+	 * Carries out a pending reduction
+	 */
+	private void settle() {
+		if (!reducePending)
+			return;
+		reducePending = false;
+		if (isBig() || num == Long.MIN_VALUE) {
+			BigInteger n = bigNumerator();
+			BigInteger d = bigDenominator();
+			BigInteger gcd = n.gcd(d);
+			set(n.divide(gcd), d.divide(gcd));
+		} else {
+			long gcd = gcd(num, den);
+			num /= gcd;
+			den /= gcd;
+		}
+	}
+
+	/**
+	 * Greatest common divisor of a and the positive number b
+	 * @param a
+	 * @param b
+	 */
+	private static long gcd(long a, long b) {
+		a = Math.abs(a);
+		while (a != 0) {
+			long t = b % a;
+			b = a;
+			a = t;
+		}
+		return b;
+	}
+}
@@ -0,0 +1,103 @@
+package fraction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of the arithmetic Fraction and SmoothFraction do, and how big the
+ * numbers it produces get, for finding out where time goes.  Nothing is
+ * counted unless the program runs with -Driskrisk.metrics=true.  ENABLED is
+ * a constant, so when it is false the compiler drops the counting
+ * altogether and it costs nothing.  The counters are LongAdders, which
+ * spread their updates over several cells so threads do not fight over
+ * one.  prediction.Metrics reports them.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL2 is distributed with this program as gpl.txt.
+ */
+public final class FractionMetrics {
+	/** true if the program was started with -Driskrisk.metrics=true */
+	public static final boolean ENABLED = Boolean.getBoolean("riskrisk.metrics");
+
+	/** Fraction.add() */
+	public static final int FRACTION_ADD = 0;
+	/** Fraction.multiply() */
+	public static final int FRACTION_MULTIPLY = 1;
+	/** SmoothFraction.add() */
+	public static final int SMOOTH_ADD = 2;
+	/** SmoothFraction.multiply() */
+	public static final int SMOOTH_MULTIPLY = 3;
+	/** number of operations counted */
+	public static final int OPERATIONS = 4;
+	/** number of buckets in the bit length histogram */
+	public static final int BUCKETS = 32;
+
+	private static final LongAdder[] operations = adders(OPERATIONS);
+	//bitLengths[i] counts results 2^(i - 1) to 2^i - 1 bits long, bitLengths[0] zero bits
+	private static final LongAdder[] bitLengths = adders(BUCKETS);
+
+	private FractionMetrics() {
+	}
+
+	/**
+	 * Counts one operation and the size of what it produced
+	 * @param op FRACTION_ADD, FRACTION_MULTIPLY, SMOOTH_ADD or SMOOTH_MULTIPLY
+	 * @param bits bit length of the bigger number in the result
+	 */
+	static void record(int op, int bits) {
+		operations[op].increment();
+		bitLengths[BUCKETS - Integer.numberOfLeadingZeros(bits)].increment();
+	}
+
+	/**
+	 * Return the number of times an operation was done.
+	 * @param op FRACTION_ADD, FRACTION_MULTIPLY, SMOOTH_ADD or SMOOTH_MULTIPLY
+	 */
+	public static long getCount(int op) {
+		return operations[op].sum();
+	}
+
+	/**
+	 * Return the histogram of result sizes: element i is the number of
+	 * results whose biggest number was 2^(i - 1) to 2^i - 1 bits long, and
+	 * element 0 those that were zero.
+	 */
+	public static long[] getBitLengths() {
+		return sums(bitLengths);
+	}
+
+	/**
+	 * Sets every count back to zero.
+	 */
+	public static void reset() {
+		for (int i = 0; i < operations.length; i++) {
+			operations[i].reset();
+		}
+		for (int i = 0; i < bitLengths.length; i++) {
+			bitLengths[i].reset();
+		}
+	}
+
+	/**
+	 * n new LongAdders
+	 * @param n
+	 */
+	static LongAdder[] adders(int n) {
+		LongAdder[] a = new LongAdder[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = new LongAdder();
+		}
+		return a;
+	}
+
+	/**
+	 * The current sums of some LongAdders
+	 * @param a
+	 */
+	static long[] sums(LongAdder[] a) {
+		long[] s = new long[a.length];
+		for (int i = 0; i < a.length; i++) {
+			s[i] = a[i].sum();
+		}
+		return s;
+	}
+}
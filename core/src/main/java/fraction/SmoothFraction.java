@@ -0,0 +1,234 @@
+package fraction;
+import java.math.BigInteger;
+import java.math.BigDecimal;
+
+/**
+ * Class to represent fractions whose denominator is of the form 2^i * 3^j,
+ * such as every probability that can come out of rolling six sided dice.
+ * Only the numerator and the two exponents are stored, so adding is a shift
+ * and a multiplication by a power of three, and multiplying is one
+ * multiplication - no greatest common divisor is ever needed.  Like Fraction,
+ * nothing is reduced unless reduce() is called, and the denominators that
+ * come out of add() and multiply() are the same ones Fraction would produce.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL2 is distributed with this program as gpl.txt.
+ */
+public class SmoothFraction {
+	private static final BigInteger THREE = BigInteger.valueOf(3);
+	/** the small powers of three, which is all add() normally needs */
+	private static final BigInteger[] POWERS = new BigInteger[40];
+	static {
+		POWERS[0] = BigInteger.ONE;
+		for (int i = 1; i < POWERS.length; i++) {
+			POWERS[i] = POWERS[i - 1].multiply(THREE);
+		}
+	}
+
+	/** store the value of the numerator */
+	private BigInteger numerator;
+	/** store the power of two in the denominator */
+	private int twos;
+	/** store the power of three in the denominator */
+	private int threes;
+
+	/**
+	 * generate the fraction n / (2^twos * 3^threes)
+	 * @param n
+	 * @param twos
+	 * @param threes
+	 * @throws RuntimeException if an exponent is negative
+	 */
+	public SmoothFraction(BigInteger n, int twos, int threes) {
+		if (twos < 0 || threes < 0) throw new RuntimeException ("Invalid denominator");
+		numerator = n;
+		this.twos = twos;
+		this.threes = threes;
+	}
+
+	/**
+	 * generate the fraction n / (2^twos * 3^threes)
+	 * @param n
+	 * @param twos
+	 * @param threes
+	 * @throws RuntimeException if an exponent is negative
+	 */
+	public SmoothFraction(long n, int twos, int threes) {
+		this(BigInteger.valueOf(n), twos, threes);
+	}
+
+	/**
+	 * generate a fraction object from another fraction object (copy constructor)
+	 * @param obj
+	 */
+	public SmoothFraction(SmoothFraction obj) {
+		numerator = obj.numerator;
+		twos = obj.twos;
+		threes = obj.threes;
+	}
+
+	/**
+	 * generate a fraction with the same value and denominator as a Fraction
+	 * @param f
+	 * @throws RuntimeException if the denominator has a prime factor other than 2 or 3
+	 */
+	public SmoothFraction(Fraction f) {
+		BigInteger d = f.getBigDenominator();
+		twos = d.getLowestSetBit();
+		d = d.shiftRight(twos);
+		threes = 0;
+		while (!d.equals(BigInteger.ONE)) {
+			BigInteger[] qr = d.divideAndRemainder(THREE);
+			if (qr[1].signum() != 0) throw new RuntimeException ("Denominator is not of the form 2^i * 3^j");
+			d = qr[0];
+			threes++;
+		}
+		numerator = f.getBigNumerator();
+	}
+
+	/**
+	 * gets the numerator
+	 * @return numerator
+	 */
+	public BigInteger getNumerator() {
+		return numerator;
+	}
+
+	/**
+	 * gets the power of two in the denominator
+	 * @return exponent of 2
+	 */
+	public int getTwos() {
+		return twos;
+	}
+
+	/**
+	 * gets the power of three in the denominator
+	 * @return exponent of 3
+	 */
+	public int getThrees() {
+		return threes;
+	}
+
+	/**
+	 * gets the denominator
+	 * @return denominator
+	 */
+	public BigInteger getDenominator() {
+		return pow3(threes).shiftLeft(twos);
+	}
+
+	/**
+	 * determines whether the fraction is zero
+	 * @return true if the numerator is zero
+	 */
+	public boolean isZero() {
+		return numerator.signum() == 0;
+	}
+
+	/**
+	 * adds the fraction f to the fraction.  The new denominator is the least
+	 * common multiple of the two denominators.
+	 * @param f
+	 */
+	public void add(SmoothFraction f) {
+		int t = Math.max(twos, f.twos);
+		int h = Math.max(threes, f.threes);
+		numerator = scale(numerator, t - twos, h - threes).add(scale(f.numerator, t - f.twos, h - f.threes));
+		twos = t;
+		threes = h;
+		if (FractionMetrics.ENABLED)
+			FractionMetrics.record(FractionMetrics.SMOOTH_ADD, numerator.bitLength());
+	}
+
+	/**
+	 * multiplies the fraction f into the fraction.  Does not reduce.
+	 * @param f
+	 */
+	public void multiply(SmoothFraction f) {
+		numerator = numerator.multiply(f.numerator);
+		twos += f.twos;
+		threes += f.threes;
+		if (FractionMetrics.ENABLED)
+			FractionMetrics.record(FractionMetrics.SMOOTH_MULTIPLY, numerator.bitLength());
+	}
+
+	/**
+	 * Reduces to simplest form by cancelling the factors of 2 and 3 that the
+	 * numerator shares with the denominator.
+	 */
+	public void reduce() {
+		if (numerator.signum() == 0) {
+			twos = 0;
+			threes = 0;
+			return;
+		}
+		int s = Math.min(twos, numerator.getLowestSetBit());
+		numerator = numerator.shiftRight(s);
+		twos -= s;
+		while (threes > 0) {
+			BigInteger[] qr = numerator.divideAndRemainder(THREE);
+			if (qr[1].signum() != 0) break;
+			numerator = qr[0];
+			threes--;
+		}
+	}
+
+	/**
+	 * Produce a Fraction with the same value and the same denominator
+	 */
+	public Fraction toFraction() {
+		return new Fraction(numerator, getDenominator());
+	}
+
+	/**
+	 * perform floating point division with the numerator and denominator, producing decimal form
+	 * @return double representing fraction
+	 */
+	public double toDouble() {
+		return toFraction().toDouble();
+	}
+
+	/**
+	 * Produce a BigDecimal representation of the fraction
+	 */
+	public BigDecimal toBigDecimal() {
+		return toFraction().toBigDecimal();
+	}
+
+	/**
+	 * Represent the fraction as a string using the default display type
+	 */
+	public String toString() {
+		return toFraction().toString();
+	}
+
+	/**
+	 * represents the fraction as a string - using the specified display type
+	 * @return string representing fraction
+	 */
+	public String toString(int type) {
+		return toFraction().toString(type);
+	}
+
+	/**
+	 * multiplies n by 2^t * 3^h
+	 * @param n
+	 * @param t
+	 * @param h
+	 */
+	private static BigInteger scale(BigInteger n, int t, int h) {
+		if (h > 0)
+			n = n.multiply(pow3(h));
+		return n.shiftLeft(t);
+	}
+
+	/**
+	 * finds 3^n
+	 * @param n
+	 */
+	private static BigInteger pow3(int n) {
+		return (n < POWERS.length) ? POWERS[n] : THREE.pow(n);
+	}
+}
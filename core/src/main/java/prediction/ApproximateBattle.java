@@ -0,0 +1,482 @@
+package prediction;
+
+/**
+ * Double precision version of Battle, for when millions of estimates are
+ * needed and exact fractions are wasted.  It uses the same transition
+ * probabilities as Battle (DiceOutcome's, rounded to doubles) and the same
+ * bottom-up order, but works on plain double arrays with no objects created
+ * while sweeping the grid.  Like Battle, every calculation can be given the
+ * dice rules to use (see RuleSet), and any rules work here, smooth or not.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class ApproximateBattle {
+	/**
+	 * precomputed battles to read instead of calculating, null if none
+	 */
+	private static volatile BattleTable table;
+	/**
+	 * the inner loop of probVictory(), in vector lanes if the JVM can
+	 */
+	private static volatile StencilKernel kernel = (StencilKernel.VECTOR != null) ? StencilKernel.VECTOR : StencilKernel.SCALAR;
+
+	/**
+	 * Serves battles with the standard rules from a precomputed approximate table (see BattleTable)
+	 * from now on, instead of calculating them.  Pass null to stop using a table.
+	 *
+	 * @param t
+	 * @throws RuntimeException if the table is not approximate
+	 */
+	public static void useTable(BattleTable t) {
+		if (t != null && t.getKind() != Battle.APPROXIMATE)
+			throw new RuntimeException("Not an approximate battle table");
+		table = t;
+	}
+
+	/**
+	 * Calculates all the possible outcomes of a fight to the death and
+	 * their approximate probabilities.  Returns null if the arguments are illegal.
+	 *
+	 * Rather than building a distribution for every smaller battle, this
+	 * pushes the probability of reaching each (attackers, defenders) state
+	 * forward from the start, so it needs only a few rows of doubles.
+	 *
+	 * @param a
+	 * @param d
+	 * @return ApproximateOutcomeDistribution
+	 */
+	public static ApproximateOutcomeDistribution predict(int a, int d) {
+		return predict(RuleSet.STANDARD, a, d);
+	}
+
+	/**
+	 * The same as predict(int, int), under the given rules.
+	 *
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @return ApproximateOutcomeDistribution
+	 */
+	public static ApproximateOutcomeDistribution predict(RuleSet r, int a, int d) {
+		if ((a > 1) && (d > 0)) {
+			BattleTable t = table;
+			if (r == RuleSet.STANDARD && t != null && t.contains(a, d))
+				return t.readApproximate(a, d);
+			ApproximateOutcomeDistribution o = new ApproximateOutcomeDistribution(a, d);
+			int window = r.window();
+			double[] p = r.kernel;
+			//ring of rows: mass[i % window][j] is the probability of reaching (i, j)
+			double[][] mass = new double[window][d + 1];
+			mass[a % window][d] = 1;
+			for (int i = a; i > 1; i--) {
+				double[] row = mass[i % window];
+				int adice = r.attackerDice(i);
+				for (int j = d; j > 0; j--) {
+					double m = row[j];
+					if (m == 0)
+						continue;
+					row[j] = 0;
+					int ddice = r.defenderDice(j);
+					int loss = Math.min(adice, ddice);
+					int off = r.offset(adice, ddice);
+					for (int k = 0; k <= loss; k++) {
+						int na = i - loss + k;
+						int nd = j - k;
+						if (nd == 0) {
+							o.attackerWins[na] += m * p[off + k];
+						} else if (na == 1) {
+							o.defenderWins[nd] += m * p[off + k];
+						} else {
+							mass[na % window][nd] += m * p[off + k];
+						}
+					}
+				}
+			}
+			return o;
+		} else {
+			if (BattleOutcome.isFinal(a, d)) {
+				ApproximateOutcomeDistribution o = new ApproximateOutcomeDistribution(a, d);
+				if (d == 0) {
+					o.attackerWins[a] = 1;
+				} else {
+					o.defenderWins[d] = 1;
+				}
+				return o;
+			} else {
+				//cannot be calculated, arguments illegal
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Calculates a single battle's distribution with the standard rules from
+	 * the already calculated distributions of battles with fewer armies, the same way
+	 * Battle.calcPredict() does.  window[k] is the row of battles with a - k
+	 * attackers, indexed by defenders - 1.
+	 * @param a
+	 * @param d
+	 * @param window
+	 */
+	static ApproximateOutcomeDistribution calcPredict(int a, int d, ApproximateOutcomeDistribution[][] window) {
+		RuleSet r = RuleSet.STANDARD;
+		ApproximateOutcomeDistribution o = new ApproximateOutcomeDistribution(a, d);
+		int adice = r.attackerDice(a);
+		int ddice = r.defenderDice(d);
+		int loss = Math.min(adice, ddice);
+		int off = r.offset(adice, ddice);
+		double[] p = r.kernel;
+		for (int k = 0; k <= loss; k++) {
+			int na = a - loss + k;
+			int nd = d - k;
+			if (nd == 0) {
+				o.attackerWins[na] += p[off + k];
+			} else if (na == 1) {
+				o.defenderWins[nd] += p[off + k];
+			} else {
+				ApproximateOutcomeDistribution n = window[loss - k][nd - 1];
+				for (int i = 0; i < n.attackerWins.length; i++) {
+					o.attackerWins[i] += p[off + k] * n.attackerWins[i];
+				}
+				for (int i = 0; i < n.defenderWins.length; i++) {
+					o.defenderWins[i] += p[off + k] * n.defenderWins[i];
+				}
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * Moves a ring of rows on by one attacker, as Battle.advance() does.
+	 * @param window
+	 * @param d length of the rows
+	 */
+	static ApproximateOutcomeDistribution[] advance(ApproximateOutcomeDistribution[][] window, int d) {
+		ApproximateOutcomeDistribution[] row = window[window.length - 1];
+		for (int k = window.length - 1; k > 0; k--) {
+			window[k] = window[k - 1];
+		}
+		if (row == null) {
+			row = new ApproximateOutcomeDistribution[d];
+		}
+		window[0] = row;
+		return row;
+	}
+
+	/**
+	 * Calculates the approximate probability of the attacker winning with at
+	 * least n armies remaining, keeping only the diagonals of probabilities
+	 * the remaining calculation depends on.  Returns NaN if the arguments are
+	 * illegal.
+	 *
+	 * Every battle one roll away from (i, j) has i + j - loss armies left,
+	 * so the grid is filled one anti-diagonal (i + j constant) at a time,
+	 * each held by attackers.  Away from the edges every battle on a
+	 * diagonal rolls the same dice, and its probability is the same few
+	 * weights times neighbouring entries of an earlier diagonal, with
+	 * nothing on its own diagonal to wait for.  Those runs go through a
+	 * StencilKernel, in vector lanes if the JVM has the Vector API (see
+	 * useVectorKernel()).
+	 *
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @return probability of victory
+	 */
+	public static double probVictory(int a, int d, int n) {
+		return probVictory(RuleSet.STANDARD, a, d, n);
+	}
+
+	/**
+	 * The same as probVictory(int, int, int), under the given rules.
+	 *
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @return probability of victory
+	 */
+	public static double probVictory(RuleSet r, int a, int d, int n) {
+		if ((a > 1) && (d > 0)) {
+			return victoryByDiagonals(r, a, d, n, kernel);
+		} else {
+			if (BattleOutcome.isFinal(a, d)) {
+				return (d == 0 && a >= n) ? 1 : 0;
+			} else {
+				//cannot be calculated, arguments illegal
+				return Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * Uses vector lanes for probVictory() from now on, or stops using them.
+	 * They are only there when the JVM runs with
+	 * --add-modules jdk.incubator.vector, and are used by default then unless
+	 * -Driskrisk.vector=false.  The answers are the same either way.
+	 *
+	 * @param on
+	 * @return true if vector lanes are now used
+	 */
+	public static boolean useVectorKernel(boolean on) {
+		StencilKernel k = (on && StencilKernel.VECTOR != null) ? StencilKernel.VECTOR : StencilKernel.SCALAR;
+		kernel = k;
+		return k != StencilKernel.SCALAR;
+	}
+
+	/**
+	 * Return what the inner loop of probVictory() runs on, for reports
+	 */
+	public static String getKernel() {
+		return kernel.toString();
+	}
+
+	/**
+	 * probVictory() for a battle that is not over, with the given kernel.
+	 * diagonals[s % diagonals.length][i] is the probability for i attackers
+	 * and s - i defenders, for the last few diagonals s.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param kernel
+	 */
+	private static double victoryByDiagonals(RuleSet r, int a, int d, int n, StencilKernel kernel) {
+		double[][] diagonals = new double[r.window()][a + 1];
+		double[] p = r.kernel;
+		int maxA = r.getMaxAttackerDice();
+		int maxD = r.getMaxDefenderDice();
+		//weights of the battles rolling the most dice on both sides
+		int loss = r.window() - 1;
+		double[] c = new double[loss + 1];
+		System.arraycopy(p, r.offset(maxA, maxD), c, 0, c.length);
+		for (int s = 2; s <= a + d; s++) {
+			double[] diagonal = diagonals[s % diagonals.length];
+			//finished battles: the defender wiped out, or the attacker down to one
+			if (s <= a)
+				diagonal[s] = (s >= n) ? 1 : 0;
+			if (s - 1 <= d)
+				diagonal[1] = 0;
+			int lo = Math.max(2, s - d);
+			int hi = Math.min(a, s - 1);
+			//battles rolling the most dice: maxA + 1 attackers and maxD defenders or more
+			int flo = Math.max(lo, maxA + 1);
+			int fhi = Math.min(hi, s - maxD);
+			if (flo > fhi) {
+				fillDiagonal(r, s, lo, hi, diagonals);
+			} else {
+				fillDiagonal(r, s, lo, flo - 1, diagonals);
+				kernel.apply(diagonals[(s - loss) % diagonals.length], diagonal, flo, fhi, c, c.length, loss);
+				fillDiagonal(r, s, fhi + 1, hi, diagonals);
+			}
+		}
+		return diagonals[(a + d) % diagonals.length][a];
+	}
+
+	/**
+	 * Fills in the probabilities of victory for lo to hi attackers on
+	 * diagonal s one battle at a time, as fillVictoryRow() does: for the
+	 * battles near the edges, which roll fewer dice.
+	 * @param r
+	 * @param s
+	 * @param lo
+	 * @param hi
+	 * @param diagonals
+	 */
+	private static void fillDiagonal(RuleSet r, int s, int lo, int hi, double[][] diagonals) {
+		double[] p = r.kernel;
+		double[] diagonal = diagonals[s % diagonals.length];
+		for (int i = lo; i <= hi; i++) {
+			int adice = r.attackerDice(i);
+			int ddice = r.defenderDice(s - i);
+			int loss = Math.min(adice, ddice);
+			int off = r.offset(adice, ddice);
+			double[] from = diagonals[(s - loss) % diagonals.length];
+			double v = 0;
+			for (int k = 0; k <= loss; k++) {
+				v += p[off + k] * from[i - loss + k];
+			}
+			diagonal[i] = v;
+		}
+	}
+
+	/**
+	 * Calculates the approximate probability of the attacker winning with at
+	 * least n armies remaining for every battle up to a attackers and d
+	 * defenders at once.  table[i][j] holds the probability for i attackers
+	 * and j defenders; rows 0 and 1 hold the finished battles (all 0).  Lookups
+	 * in the table are as fast as it gets for repeated queries.
+	 *
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @return table of probabilities of victory
+	 */
+	public static double[][] victoryTable(int a, int d, int n) {
+		return victoryTable(RuleSet.STANDARD, a, d, n);
+	}
+
+	/**
+	 * The same as victoryTable(int, int, int), under the given rules.
+	 *
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @return table of probabilities of victory
+	 */
+	public static double[][] victoryTable(RuleSet r, int a, int d, int n) {
+		double[][] victories = new double[Math.max(a, 1) + 1][Math.max(d, 0) + 1];
+		double[][] rows = new double[r.window()][];
+		for (int i = 2; i <= a; i++) {
+			for (int k = 0; k < rows.length; k++) {
+				rows[k] = victories[Math.max(i - k, 0)];
+			}
+			fillVictoryRow(r, i, d, n, rows);
+		}
+		return victories;
+	}
+
+	/**
+	 * The same as Battle.minimumAttackers(int, double, int), from approximate
+	 * probabilities of victory.
+	 *
+	 * @param d
+	 * @param p
+	 * @param n
+	 * @return attackers needed
+	 */
+	public static int minimumAttackers(int d, double p, int n) {
+		return minimumAttackers(RuleSet.STANDARD, d, p, n);
+	}
+
+	/**
+	 * The same as Battle.minimumAttackers(RuleSet, int, double, int), from
+	 * approximate probabilities of victory, so any rules work.  The rows are
+	 * filled in as victoryTable() does, one more attacker at a time, and the
+	 * search gives up the same way when the chance stops growing.
+	 *
+	 * @param r
+	 * @param d
+	 * @param p
+	 * @param n
+	 * @return attackers needed
+	 */
+	public static int minimumAttackers(RuleSet r, int d, double p, int n) {
+		if (d < 1 || !(p < 1))
+			return -1;
+		if (p <= 0)
+			return 1;
+		//with more attackers than this every way to victory is open
+		long open = (long)Math.max(n, 1) + r.getMaxAttackerDice() + (long)d * (r.window() - 1);
+		double last = 0;
+		//ring of rows indexed by defenders, row i at i % length
+		double[][] window = new double[r.window()][d + 1];
+		double[][] rows = new double[window.length][];
+		for (int i = 2; ; i++) {
+			for (int k = 0; k < rows.length; k++) {
+				rows[k] = window[(i + window.length - k) % window.length];
+			}
+			fillVictoryRow(r, i, d, n, rows);
+			double v = rows[0][d];
+			if (v >= p)
+				return i;
+			if (i > open && v <= last)
+				return -1;
+			last = v;
+		}
+	}
+
+	/**
+	 * The same as Battle.minimumDefenders(int, double), from approximate
+	 * probabilities of victory.
+	 *
+	 * @param a
+	 * @param p
+	 * @return defenders needed
+	 */
+	public static int minimumDefenders(int a, double p) {
+		return minimumDefenders(RuleSet.STANDARD, a, p);
+	}
+
+	/**
+	 * The same as Battle.minimumDefenders(RuleSet, int, double), from
+	 * approximate probabilities of victory, so any rules work.  One more
+	 * defender at a time, a column of victories for 2 to a attackers is
+	 * filled in from the columns before it.
+	 *
+	 * @param r
+	 * @param a
+	 * @param p
+	 * @return defenders needed
+	 */
+	public static int minimumDefenders(RuleSet r, int a, double p) {
+		if (a < 1 || p > 1 || (a > 1 && p == 1) || Double.isNaN(p))
+			return -1;
+		if (a == 1)
+			return 1;
+		//with more defenders than this every way to hold is open
+		long open = (long)a * (r.window() - 1) + r.getMaxDefenderDice();
+		double last = 0;
+		double[] q = r.kernel;
+		//ring of columns indexed by attackers, column j at j % length;
+		//one attacker left is a loss, so index 1 stays 0
+		double[][] columns = new double[r.window()][a + 1];
+		for (int j = 1; ; j++) {
+			double[] column = columns[j % columns.length];
+			int ddice = r.defenderDice(j);
+			for (int i = 2; i <= a; i++) {
+				int adice = r.attackerDice(i);
+				int loss = Math.min(adice, ddice);
+				int off = r.offset(adice, ddice);
+				double v = 0;
+				for (int k = 0; k <= loss; k++) {
+					int na = i - loss + k;
+					int nd = j - k;
+					v += q[off + k] * ((nd == 0) ? 1 : columns[nd % columns.length][na]);
+				}
+				column[i] = v;
+			}
+			double hold = 1 - column[a];
+			if (hold >= p)
+				return j;
+			if (j > open && hold <= last)
+				return -1;
+			last = hold;
+		}
+	}
+
+	/**
+	 * Fills in the probabilities of victory with at least n armies remaining
+	 * for i attackers against 0 to d defenders.  rows[k] is the row for i - k
+	 * attackers, so rows[0] is the one filled in.  Index 0 of each row is the
+	 * finished battle.
+	 * @param r
+	 * @param i
+	 * @param d
+	 * @param n
+	 * @param rows
+	 */
+	static void fillVictoryRow(RuleSet r, int i, int d, int n, double[][] rows) {
+		double[] row = rows[0];
+		double[] p = r.kernel;
+		int adice = r.attackerDice(i);
+		row[0] = (i >= n) ? 1 : 0;
+		for (int j = 1; j <= d; j++) {
+			int ddice = r.defenderDice(j);
+			int loss = Math.min(adice, ddice);
+			int off = r.offset(adice, ddice);
+			double v = 0;
+			for (int k = 0; k <= loss; k++) {
+				//the attacker loses loss - k armies, and one army left is a loss
+				int back = loss - k;
+				if (i - back > 1) {
+					v += p[off + k] * rows[back][j - k];
+				}
+			}
+			row[j] = v;
+		}
+	}
+}
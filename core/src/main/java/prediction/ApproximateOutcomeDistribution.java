@@ -0,0 +1,104 @@
+package prediction;
+
+/**
+ * The double precision counterpart of OutcomeDistribution: the probability
+ * of each final outcome of a battle, kept in two arrays indexed by the
+ * surviving armies.  Probabilities too small for a double read as zero.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class ApproximateOutcomeDistribution {
+	//attackerWins[a] is the probability of (a, 0)
+	double[] attackerWins;
+	//defenderWins[d] is the probability of (1, d)
+	double[] defenderWins;
+
+	/**
+	 * Produces an empty distribution with room for the outcomes of a battle
+	 * starting with a attackers and d defenders.
+	 * @param a
+	 * @param d
+	 */
+	public ApproximateOutcomeDistribution(int a, int d) {
+		attackerWins = new double[Math.max(a, 1) + 1];
+		defenderWins = new double[Math.max(d, 0) + 1];
+	}
+
+	/**
+	 * Return the number of outcomes with a probability above zero.
+	 */
+	public int count() {
+		int c = 0;
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] > 0)
+				c++;
+		}
+		for (int i = 0; i < defenderWins.length; i++) {
+			if (defenderWins[i] > 0)
+				c++;
+		}
+		return c;
+	}
+
+	/**
+	 * Gets the probability of the final outcome (a, d), or 0 if it
+	 * cannot happen.
+	 * @param a
+	 * @param d
+	 */
+	public double probability(int a, int d) {
+		if (BattleOutcome.isFinal(a, d)) {
+			if (d == 0) {
+				if (a < attackerWins.length)
+					return attackerWins[a];
+			} else {
+				if (d < defenderWins.length)
+					return defenderWins[d];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Determines the probability of successful invasion with the given number of armies left
+	 */
+	public double probVictory(int n) {
+		double p = 0;
+		for (int i = Math.max(n, 0); i < attackerWins.length; i++) {
+			p += attackerWins[i];
+		}
+		return p;
+	}
+
+	/**
+	 * Represent the distribution as a string, in the same order and format as
+	 * OutcomeDistribution.
+	 */
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		for (int i = defenderWins.length - 1; i > 0; i--) {
+			if (defenderWins[i] > 0)
+				append(b, 1, i, defenderWins[i]);
+		}
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] > 0)
+				append(b, i, 0, attackerWins[i]);
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Appends one outcome line, separating it from the previous one
+	 * @param b
+	 * @param a
+	 * @param d
+	 * @param p
+	 */
+	private static void append(StringBuilder b, int a, int d, double p) {
+		if (b.length() > 0)
+			b.append('\n');
+		b.append("Attacker: ").append(a).append(" Defender: ").append(d).append(" Probability: ").append(p);
+	}
+}
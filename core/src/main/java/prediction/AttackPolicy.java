@@ -0,0 +1,211 @@
+package prediction;
+
+/**
+ * The best way to play a battle for some Objective: at every number of
+ * attackers and defenders, whether to stop or keep attacking, and with how
+ * many dice.  Battle assumes a fight to the death with all the dice; a real
+ * player may do better by stopping while ahead, or by rolling fewer dice
+ * to lose fewer armies at once.  The defender is taken to always roll all
+ * the dice allowed.
+ *
+ * solve() works by backward induction: the worth of playing on from (a, d)
+ * depends only on battles with fewer armies, so going through the grid in
+ * the same order as Battle's calculation, the best choice at each battle is
+ * the best of stopping and rolling each number of dice, using the rules'
+ * probabilities (the same ones Battle uses) as doubles.  That is a few
+ * operations per battle and choice, so a 1000 by 1000 grid takes well under
+ * a second.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class AttackPolicy {
+	/** dice() for a battle in which the attacker should stop */
+	public static final int STOP = 0;
+
+	private final RuleSet r;
+	private final Objective objective;
+	private final int maxA;
+	private final int maxD;
+	//worth[a * (maxD + 1) + d] is the expected worth of (a, d) played well
+	private final double[] worth;
+	//dice[a * (maxD + 1) + d] is the dice to roll at (a, d), or STOP
+	private final byte[] dice;
+
+	private AttackPolicy(RuleSet r, Objective objective, int maxA, int maxD) {
+		this.r = r;
+		this.objective = objective;
+		this.maxA = maxA;
+		this.maxD = maxD;
+		worth = new double[(maxA + 1) * (maxD + 1)];
+		dice = new byte[worth.length];
+	}
+
+	/**
+	 * Finds the best play for every battle up to a attackers and d defenders
+	 * under the standard rules.  Returns null if the arguments are illegal.
+	 *
+	 * @param a
+	 * @param d
+	 * @param objective
+	 * @return AttackPolicy
+	 */
+	public static AttackPolicy solve(int a, int d, Objective objective) {
+		return solve(RuleSet.STANDARD, a, d, objective);
+	}
+
+	/**
+	 * Finds the best play for every battle up to a attackers and d defenders.
+	 * When stopping and rolling are worth the same, the policy rolls, and
+	 * with as many dice as does as well as any.  Returns null if the
+	 * arguments are illegal.
+	 *
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param objective
+	 * @return AttackPolicy
+	 */
+	public static AttackPolicy solve(RuleSet r, int a, int d, Objective objective) {
+		if (a < 1 || d < 0)
+			return null;
+		AttackPolicy p = new AttackPolicy(r, objective, a, d);
+		int width = d + 1;
+		double[] kernel = r.kernel;
+		for (int i = 1; i <= a; i++) {
+			int row = i * width;
+			p.worth[row] = objective.conquest(i);
+			for (int j = 1; j <= d; j++) {
+				double best = objective.stop(i, j);
+				int choice = STOP;
+				int ddice = r.defenderDice(j);
+				//with one attacker there is nothing to roll
+				for (int k = 1; k <= r.attackerDice(i); k++) {
+					int loss = Math.min(k, ddice);
+					int o = r.offset(k, ddice);
+					double w = 0;
+					for (int win = 0; win <= loss; win++) {
+						//the attacker loses loss - win, the defender win
+						w += kernel[o + win] * p.worth[(i - loss + win) * width + j - win];
+					}
+					if (w >= best) {
+						best = w;
+						choice = k;
+					}
+				}
+				p.worth[row + j] = best;
+				p.dice[row + j] = (byte)choice;
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Return the most attackers solved for.
+	 */
+	public int getAttackers() {
+		return maxA;
+	}
+
+	/**
+	 * Return the most defenders solved for.
+	 */
+	public int getDefenders() {
+		return maxD;
+	}
+
+	/**
+	 * Return the objective solved for.
+	 */
+	public Objective getObjective() {
+		return objective;
+	}
+
+	/**
+	 * Return the rules solved for.
+	 */
+	public RuleSet getRules() {
+		return r;
+	}
+
+	/**
+	 * The number of dice to roll at a attackers and d defenders, or STOP.
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if (a, d) is outside the grid solved
+	 */
+	public int dice(int a, int d) {
+		return dice[index(a, d)];
+	}
+
+	/**
+	 * The expected worth of a attackers and d defenders, played well from
+	 * there on.  For Objective.victory() this is the probability of victory.
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if (a, d) is outside the grid solved
+	 */
+	public double value(int a, int d) {
+		return worth[index(a, d)];
+	}
+
+	/**
+	 * The fewest attackers with which the policy keeps attacking d
+	 * defenders, or -1 if it never does within the grid.  Every battle
+	 * with fewer attackers is one to stop at, but battles with more are
+	 * only all ones to attack in if isThreshold(d).
+	 * @param d
+	 * @throws RuntimeException if d is outside the grid solved
+	 */
+	public int threshold(int d) {
+		index(1, d);
+		for (int i = 2; i <= maxA; i++) {
+			if (dice[i * (maxD + 1) + d] != STOP)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return true if against d defenders the policy keeps attacking with
+	 * every number of attackers from threshold(d) up, so that threshold(d)
+	 * tells the whole story.  Nothing makes that so for every objective: a
+	 * player may do best to stop while ahead with many attackers and still
+	 * attack with fewer.
+	 * @param d
+	 * @throws RuntimeException if d is outside the grid solved
+	 */
+	public boolean isThreshold(int d) {
+		int t = threshold(d);
+		if (t < 0)
+			return true;
+		for (int i = t + 1; i <= maxA; i++) {
+			if (dice[i * (maxD + 1) + d] == STOP)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Represent the policy as a string: what to do at the largest battle
+	 * and how much it is worth.
+	 */
+	public String toString() {
+		int k = dice(maxA, maxD);
+		return ((k == STOP) ? "Stop" : "Roll " + k + ((k == 1) ? " die" : " dice")) + " with " + maxA + " attackers against " + maxD
+			+ " defenders: worth " + value(maxA, maxD) + " (" + objective + ")";
+	}
+
+	/**
+	 * Where (a, d) is in the tables
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if (a, d) is outside the grid solved
+	 */
+	private int index(int a, int d) {
+		if (a < 1 || a > maxA || d < 0 || d > maxD)
+			throw new RuntimeException("Battle outside the policy: " + a + ", " + d);
+		return a * (maxD + 1) + d;
+	}
+}
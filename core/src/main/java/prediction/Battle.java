@@ -0,0 +1,1019 @@
+package prediction;
+import fraction.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class for finding precise and accurate probabilities of the outcomes of battles
+ * to the death in the game Risk.  Everything is static for a reason - it caches
+ * the calculation steps to make further calculations faster.  The cache is
+ * filled bottom-up rather than recursively, so big battles do not need a big stack,
+ * and it is safe to share between threads (see BattleCache).
+ * 
+ * Every calculation can be given the dice rules to use (see RuleSet); without
+ * one it uses RuleSet.STANDARD.  Each rule set's battles are cached apart.
+ * 
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class Battle {
+	/** calculate with exact fractions */
+	public static final int EXACT = 1;
+	/** calculate with doubles, see ApproximateBattle */
+	public static final int APPROXIMATE = 2;
+	
+	/**
+	 * cache to make bottom-up calculation possible, by default allowed a
+	 * quarter of the heap (or the riskrisk.cache system property, in bytes)
+	 */
+	private static final BattleCache cache = new BattleCache(Long.getLong("riskrisk.cache", Runtime.getRuntime().maxMemory() / 4).longValue());
+	/**
+	 * precomputed battles to read instead of calculating, null if none
+	 */
+	private static volatile BattleTable table;
+	//true once useTable() has been called, so the bundled table is not used
+	private static volatile boolean tableChosen;
+	/**
+	 * number of rows (attacker counts) a calculation with the standard rules
+	 * looks back over, the current row included
+	 */
+	static final int WINDOW = Math.min(DiceOutcome.MAX_A_DICE, DiceOutcome.MAX_D_DICE) + 1;
+	/**
+	 * battles of at least this many cells (attackers * defenders) that are not
+	 * cached are calculated in closed form (see SteadyState) where possible
+	 */
+	static final int STEADY_CELLS = 1 << 12;
+	
+	/**
+	 * Calculates all the possible outcomes of a fight to the death and
+	 * their probabilities.  Returns null if the arguments are illegal.
+	 * 
+	 * @param a
+	 * @param d
+	 * @return BattleOutcomeSet
+	 */
+	public static BattleOutcomeSet predict(int a, int d) {
+		return predict(RuleSet.STANDARD, a, d);
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a fight to the death under the
+	 * given rules and their probabilities.  Returns null if the arguments are illegal.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @return BattleOutcomeSet
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static BattleOutcomeSet predict(RuleSet r, int a, int d) {
+		OutcomeDistribution o = predictDistribution(r, a, d);
+		return (o == null) ? null : o.toOutcomeSet();
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a fight to the death and
+	 * their probabilities.  Returns null if the arguments are illegal.
+	 * The distribution returned may be shared with the cache.
+	 * 
+	 * @param a
+	 * @param d
+	 * @return OutcomeDistribution
+	 */
+	public static OutcomeDistribution predictDistribution(int a, int d) {
+		return predictDistribution(RuleSet.STANDARD, a, d);
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a fight to the death under the
+	 * given rules and their probabilities.  Returns null if the arguments are
+	 * illegal.  The distribution returned may be shared with the cache.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @return OutcomeDistribution
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static OutcomeDistribution predictDistribution(RuleSet r, int a, int d) {
+		if (!Metrics.ENABLED)
+			return distribution(r, a, d);
+		long start = System.nanoTime();
+		OutcomeDistribution o = distribution(r, a, d);
+		Metrics.predicted(start, o);
+		return o;
+	}
+	
+	/**
+	 * predictDistribution(RuleSet, int, int) without counting it in Metrics
+	 * @param r
+	 * @param a
+	 * @param d
+	 */
+	private static OutcomeDistribution distribution(RuleSet r, int a, int d) {
+		if ((a > 1) && (d > 0)) {
+			OutcomeDistribution o = cache.get(r, a, d);
+			if (o == null) {
+				final BattleTable t = tableFor(r);
+				if (t != null && t.contains(a, d)) {
+					//precomputed, read it straight from the table
+					final int ca = a;
+					final int cd = d;
+					o = cache.computeIfAbsent(r, a, d, () -> t.read(ca, cd));
+				} else if (steady(r, a, d)) {
+					//big enough to jump straight across the steady state
+					final int ca = a;
+					final int cd = d;
+					o = cache.computeIfAbsent(r, a, d, () -> SteadyState.predict(r, ca, cd));
+				} else {
+					//if the requested battle has not been calculated,
+					//fill in the cache up to it
+					o = fill(r, a, d, true);
+				}
+			}
+			return o;
+		} else {
+			if (BattleOutcome.isFinal(a, d)) {
+				OutcomeDistribution o = new OutcomeDistribution(a, d);
+				o.merge(a, d, new SmoothFraction(1, 0, 0));
+				return o;
+			} else {
+				//cannot be calculated, arguments illegal
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a battle in which the attacker
+	 * keeps attacking until the defender is wiped out or the attacker is down
+	 * to k armies, and their probabilities.  Returns null if the arguments
+	 * are illegal.
+	 * 
+	 * @param a
+	 * @param d
+	 * @param k
+	 * @return BattleOutcomeSet
+	 */
+	public static BattleOutcomeSet predict(int a, int d, int k) {
+		return predict(RuleSet.STANDARD, a, d, k);
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a battle under the given rules
+	 * in which the attacker keeps attacking until the defender is wiped out
+	 * or the attacker is down to k armies, and their probabilities.  Returns
+	 * null if the arguments are illegal.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param k
+	 * @return BattleOutcomeSet
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static BattleOutcomeSet predict(RuleSet r, int a, int d, int k) {
+		OutcomeDistribution o = predictDistribution(r, a, d, k);
+		return (o == null) ? null : o.toOutcomeSet();
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a battle in which the attacker
+	 * keeps attacking until the defender is wiped out or the attacker is down
+	 * to k armies.  See predictDistribution(RuleSet, int, int, int).
+	 * 
+	 * @param a
+	 * @param d
+	 * @param k
+	 * @return OutcomeDistribution
+	 */
+	public static OutcomeDistribution predictDistribution(int a, int d, int k) {
+		return predictDistribution(RuleSet.STANDARD, a, d, k);
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a battle under the given rules
+	 * in which the attacker keeps attacking until the defender is wiped out
+	 * or the attacker is down to k armies.  The attacker always rolls as many
+	 * dice as allowed, so the last roll may leave fewer than k.  A threshold
+	 * of 1 is a fight to the death, and an attacker starting with k or fewer
+	 * armies does not attack at all.  Returns null if the arguments are
+	 * illegal.  The distribution returned may be shared with the cache.
+	 * 
+	 * Once k is at least the most dice the attacker may roll, the attacker
+	 * rolls the same dice on every roll of the battle as with k - 1 and one
+	 * army fewer, so all such thresholds are worked out from the same cached
+	 * battles, just with more attackers in every outcome.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param k
+	 * @return OutcomeDistribution
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static OutcomeDistribution predictDistribution(RuleSet r, int a, int d, int k) {
+		if (k <= 1)
+			return predictDistribution(r, a, d);
+		if (!Metrics.ENABLED)
+			return distribution(r, a, d, k);
+		long start = System.nanoTime();
+		OutcomeDistribution o = distribution(r, a, d, k);
+		Metrics.predicted(start, o);
+		return o;
+	}
+	
+	/**
+	 * predictDistribution(RuleSet, int, int, int) without counting it in
+	 * Metrics, for k above 1
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param k
+	 */
+	private static OutcomeDistribution distribution(RuleSet r, int a, int d, int k) {
+		if ((a > k) && (d > 0)) {
+			//the same battles as at threshold t, shifted up
+			int t = Math.min(k, r.getMaxAttackerDice());
+			int shift = k - t;
+			OutcomeDistribution o;
+			if (t == 1) {
+				o = distribution(r, a - shift, d);
+			} else {
+				o = cache.get(r, t, a - shift, d);
+				if (o == null)
+					o = fill(r, t, a - shift, d, true);
+			}
+			return (shift == 0) ? o : o.translate(shift);
+		} else if (a >= 1 && d >= 1) {
+			//already at or below the threshold, no battle
+			OutcomeDistribution o = new OutcomeDistribution(a, d, a, 1);
+			o.merge(a, d, new SmoothFraction(1, 0, 0));
+			return o;
+		} else {
+			return distribution(r, a, d);
+		}
+	}
+	
+	/**
+	 * Fills the cache for every battle up to a attackers and d defenders using
+	 * every core of the common fork/join pool.  See precompute(int, int, ForkJoinPool).
+	 * 
+	 * @param a
+	 * @param d
+	 * @return the distribution for (a, d), or null if the arguments are illegal
+	 */
+	public static OutcomeDistribution precompute(int a, int d) {
+		return precompute(a, d, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Fills the cache for every battle up to a attackers and d defenders in
+	 * parallel.  A battle only depends on battles with one or two fewer armies
+	 * in total, so every battle on an anti-diagonal (attackers + defenders = k)
+	 * can be calculated at the same time once the diagonals before it are done.
+	 * The diagonals are filled in order, each one split across the pool.  The
+	 * results are the same as filling the cache serially.
+	 * 
+	 * @param a
+	 * @param d
+	 * @param pool
+	 * @return the distribution for (a, d), or null if the arguments are illegal
+	 */
+	public static OutcomeDistribution precompute(int a, int d, ForkJoinPool pool) {
+		return precompute(RuleSet.STANDARD, a, d, pool);
+	}
+	
+	/**
+	 * The same as precompute(int, int, ForkJoinPool), under the given rules.
+	 * A battle only depends on battles with fewer armies in total, whatever
+	 * the rules, so the diagonals still work.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param pool
+	 * @return the distribution for (a, d), or null if the arguments are illegal
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static OutcomeDistribution precompute(RuleSet r, int a, int d, ForkJoinPool pool) {
+		if ((a > 1) && (d > 0)) {
+			OutcomeDistribution o = cache.get(r, a, d);
+			if (o != null)
+				return o;
+			for (int k = 3; k <= a + d; k++) {
+				pool.invoke(new Diagonal(r, k, Math.max(2, k - d), Math.min(a, k - 1)));
+			}
+			return cache.get(r, a, d);
+		} else {
+			return predictDistribution(r, a, d);
+		}
+	}
+	
+	/**
+	 * Fork/join task calculating the battles with attackers from lo to hi
+	 * on the anti-diagonal attackers + defenders = k.
+	 */
+	private static class Diagonal extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//split no further than this many battles
+		private static final int GRAIN = 4;
+		private final RuleSet r;
+		private final int k;
+		private final int lo;
+		private final int hi;
+		
+		Diagonal(RuleSet r, int k, int lo, int hi) {
+			this.r = r;
+			this.k = k;
+			this.lo = lo;
+			this.hi = hi;
+		}
+		
+		protected void compute() {
+			if (hi - lo < GRAIN) {
+				for (int i = lo; i <= hi; i++) {
+					calcFromCache(r, i, k - i);
+				}
+			} else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Diagonal(r, k, lo, mid), new Diagonal(r, k, mid + 1, hi));
+			}
+		}
+	}
+	
+	/**
+	 * Calculates a single battle into the cache, looking up the battles it
+	 * depends on in the cache (and filling them in if they are missing).
+	 * @param r
+	 * @param a
+	 * @param d
+	 */
+	private static OutcomeDistribution calcFromCache(final RuleSet r, final int a, final int d) {
+		return cache.computeIfAbsent(r, a, d, () -> {
+			BattleTable t = tableFor(r);
+			if (t != null && t.contains(a, d))
+				return t.read(a, d);
+			int loss = r.losses(a, d);
+			OutcomeDistribution[] next = new OutcomeDistribution[loss + 1];
+			for (int i = 0; i <= loss; i++) {
+				int na = a - loss + i;
+				int nd = d - i;
+				if (!BattleOutcome.isFinal(na, nd))
+					next[i] = distribution(r, na, nd);
+			}
+			return calcPredict(r, a, d, next);
+		});
+	}
+	
+	/**
+	 * Serves battles with the standard rules from a precomputed exact table
+	 * (see BattleTable) from now on, instead of calculating them.  Battles outside the table are still
+	 * calculated, using the table for the smaller battles they depend on.
+	 * Until this is called the table built into the jar is used, if there
+	 * is one (see BattleTable.bundled()).  Pass null to stop using a table.
+	 * 
+	 * @param t
+	 * @throws RuntimeException if the table is not exact
+	 */
+	public static void useTable(BattleTable t) {
+		if (t != null && t.getKind() != EXACT)
+			throw new RuntimeException("Not an exact battle table");
+		table = t;
+		tableChosen = true;
+	}
+	
+	/**
+	 * Calculates all the possible outcomes of a fight to the death in closed
+	 * form, jumping straight across the part of the battle where both sides
+	 * roll all their dice (see SteadyState).  The work grows with a + d rather
+	 * than a * d, so this handles battles of thousands of armies.  Nothing is
+	 * cached, and the probabilities are the same fractions predict() gives.
+	 * Returns null if the arguments are illegal or the closed form does not
+	 * apply: the rules must be smooth and cost two armies a roll, and (a, d)
+	 * must have both sides rolling all their dice.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @return OutcomeDistribution
+	 */
+	public static OutcomeDistribution predictClosedForm(RuleSet r, int a, int d) {
+		return SteadyState.predict(r, a, d);
+	}
+	
+	/**
+	 * true if (a, d) is big enough to calculate in closed form, and can be
+	 * @param r
+	 * @param a
+	 * @param d
+	 */
+	private static boolean steady(RuleSet r, int a, int d) {
+		return (long)a * d >= STEADY_CELLS && SteadyState.applies(r, a, d);
+	}
+	
+	/**
+	 * The table to read battles under the rules r from, null if none
+	 * @param r
+	 */
+	private static BattleTable tableFor(RuleSet r) {
+		if (r != RuleSet.STANDARD)
+			return null;
+		return tableChosen ? table : Bundled.TABLE;
+	}
+	
+	/**
+	 * Holds the table built into the jar (see BattleTable.bundled()), read
+	 * the first time a battle is looked for in it
+	 */
+	private static class Bundled {
+		static final BattleTable TABLE = BattleTable.bundled();
+	}
+	
+	/**
+	 * Throws away every cached battle, so the next predictions start from
+	 * nothing.  Calculations already running finish normally.
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+	
+	/**
+	 * Limits the memory the cache may use.  Once the cached battles are
+	 * estimated to take more than this, the ones cheapest to calculate again
+	 * are thrown out (see BattleCache).
+	 * 
+	 * @param bytes
+	 * @throws RuntimeException if bytes is negative
+	 */
+	public static void setCacheBudget(long bytes) {
+		cache.setBudget(bytes);
+	}
+	
+	/**
+	 * Return the most memory, in bytes, the cache may use.
+	 */
+	public static long getCacheBudget() {
+		return cache.getBudget();
+	}
+	
+	/**
+	 * Return the cache's hit, miss and eviction counts and current size.
+	 */
+	public static CacheStats getCacheStats() {
+		return cache.stats();
+	}
+	
+	/**
+	 * Calculates the outcomes of a fight to the death without using or
+	 * growing the cache.  Only the rows of the grid that the remaining
+	 * calculation still depends on are kept, so this is the one to use
+	 * for battles too big to cache.  Returns null if the arguments are illegal.
+	 * 
+	 * @param a
+	 * @param d
+	 * @return BattleOutcomeSet
+	 */
+	public static BattleOutcomeSet predictUncached(int a, int d) {
+		return predictUncached(RuleSet.STANDARD, a, d);
+	}
+	
+	/**
+	 * The same as predictUncached(int, int), under the given rules.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @return BattleOutcomeSet
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static BattleOutcomeSet predictUncached(RuleSet r, int a, int d) {
+		if ((a > 1) && (d > 0)) {
+			//ring of rows: window[k] holds the row for k fewer attackers
+			OutcomeDistribution[][] window = new OutcomeDistribution[r.window()][];
+			for (int i = 2; i <= a; i++) {
+				OutcomeDistribution[] row = advance(window, d);
+				for (int j = 1; j <= d; j++) {
+					row[j - 1] = calcPredict(r, i, j, window);
+				}
+			}
+			return window[0][d - 1].toOutcomeSet();
+		} else {
+			//no calculation needed, predict() handles these without the cache
+			return predict(r, a, d);
+		}
+	}
+	
+	/**
+	 * Calculates the probability of the attacker winning with at least n
+	 * armies remaining without building any outcome distributions.  Only one
+	 * probability per battle is kept, and only for the rows the remaining
+	 * calculation depends on, so this works for battles far bigger than the
+	 * cache could hold.  Returns null if the arguments are illegal.
+	 * 
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @return Fraction
+	 */
+	public static Fraction probVictory(int a, int d, int n) {
+		return probVictory(RuleSet.STANDARD, a, d, n);
+	}
+	
+	/**
+	 * The same as probVictory(int, int, int), under the given rules.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @return Fraction
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static Fraction probVictory(RuleSet r, int a, int d, int n) {
+		if (!Metrics.ENABLED)
+			return victory(r, a, d, n);
+		long start = System.nanoTime();
+		Fraction f = victory(r, a, d, n);
+		Metrics.victory(start);
+		return f;
+	}
+	
+	/**
+	 * probVictory(RuleSet, int, int, int) without counting it in Metrics
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 */
+	private static Fraction victory(RuleSet r, int a, int d, int n) {
+		if ((a > 1) && (d > 0) && steady(r, a, d)) {
+			//the closed form is quicker than even one probability per battle
+			return distribution(r, a, d).probVictory(n);
+		} else if ((a > 1) && (d > 0)) {
+			//ring of rows: window[k] holds the row for k fewer attackers
+			SmoothFraction[][] window = new SmoothFraction[r.window()][];
+			for (int i = 2; i <= a; i++) {
+				//recycle the oldest row as the new current row
+				SmoothFraction[] row = window[window.length - 1];
+				for (int k = window.length - 1; k > 0; k--) {
+					window[k] = window[k - 1];
+				}
+				if (row == null) {
+					row = new SmoothFraction[d];
+				}
+				window[0] = row;
+				for (int j = 1; j <= d; j++) {
+					row[j - 1] = calcVictory(r, i, j, n, window);
+				}
+			}
+			SmoothFraction f = new SmoothFraction(window[0][d - 1]);
+			f.reduce();
+			return f.toFraction();
+		} else {
+			if (BattleOutcome.isFinal(a, d)) {
+				return finalVictory(a, d, n).toFraction();
+			} else {
+				//cannot be calculated, arguments illegal
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * Finds the fewest attacking armies that conquer d defenders with at
+	 * least n armies remaining with probability at least p.  Returns -1 if
+	 * the arguments are illegal or no number of armies will do (p of 1 or
+	 * more, or rules under which the chance never gets to p).
+	 * 
+	 * @param d
+	 * @param p
+	 * @param n
+	 * @return attackers needed
+	 */
+	public static int minimumAttackers(int d, double p, int n) {
+		return minimumAttackers(RuleSet.STANDARD, d, p, n);
+	}
+	
+	/**
+	 * The same as minimumAttackers(int, double, int), under the given rules.
+	 * The probabilities of victory are worked out exactly as probVictory()
+	 * does, one more attacker at a time, stopping at the first that meets
+	 * the target; more attackers never make victory less likely.  Once there
+	 * are enough attackers for every way to victory, a chance that has
+	 * stopped growing will never reach p, and -1 is returned: victory may be
+	 * impossible under the rules, or p too close to 1 for a double.
+	 * 
+	 * @param r
+	 * @param d
+	 * @param p
+	 * @param n
+	 * @return attackers needed
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static int minimumAttackers(RuleSet r, int d, double p, int n) {
+		if (d < 1 || !(p < 1))
+			return -1;
+		if (p <= 0)
+			return 1;
+		//with more attackers than this every way to victory is open
+		long open = (long)Math.max(n, 1) + r.getMaxAttackerDice() + (long)d * (r.window() - 1);
+		double last = 0;
+		//ring of rows: window[k] holds the row for k fewer attackers
+		SmoothFraction[][] window = new SmoothFraction[r.window()][];
+		for (int i = 2; ; i++) {
+			//recycle the oldest row as the new current row
+			SmoothFraction[] row = window[window.length - 1];
+			for (int k = window.length - 1; k > 0; k--) {
+				window[k] = window[k - 1];
+			}
+			if (row == null) {
+				row = new SmoothFraction[d];
+			}
+			window[0] = row;
+			for (int j = 1; j <= d; j++) {
+				row[j - 1] = calcVictory(r, i, j, n, window);
+			}
+			double v = row[d - 1].toDouble();
+			if (!row[d - 1].isZero() && v >= p)
+				return i;
+			if (i > open && v <= last)
+				return -1;
+			last = v;
+		}
+	}
+	
+	/**
+	 * Finds the fewest defending armies that hold off a attackers, so that
+	 * the attacker does not conquer them, with probability at least p.
+	 * Returns -1 if the arguments are illegal or no number of armies will do
+	 * (p of 1 or more against more than one attacker, or rules under which
+	 * the chance never gets to p).
+	 * 
+	 * @param a
+	 * @param p
+	 * @return defenders needed
+	 */
+	public static int minimumDefenders(int a, double p) {
+		return minimumDefenders(RuleSet.STANDARD, a, p);
+	}
+	
+	/**
+	 * The same as minimumDefenders(int, double), under the given rules.
+	 * The probabilities of victory are worked out exactly, one more defender
+	 * at a time, stopping at the first that meets the target; more defenders
+	 * never make defeat more likely.  As with minimumAttackers(), once a
+	 * chance that has stopped growing can no longer grow, -1 is returned.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param p
+	 * @return defenders needed
+	 * @throws RuntimeException if the rules are not smooth (see RuleSet.isSmooth())
+	 */
+	public static int minimumDefenders(RuleSet r, int a, double p) {
+		if (a < 1 || p > 1 || (a > 1 && p == 1) || Double.isNaN(p))
+			return -1;
+		if (a == 1)
+			return 1;
+		//with more defenders than this every way to hold is open
+		long open = (long)a * (r.window() - 1) + r.getMaxDefenderDice();
+		double last = 0;
+		//ring of columns: columns[k][i] is the victory of i attackers
+		//against k fewer defenders than the current column
+		SmoothFraction[][] columns = new SmoothFraction[r.window()][];
+		for (int j = 1; ; j++) {
+			SmoothFraction[] column = columns[columns.length - 1];
+			for (int k = columns.length - 1; k > 0; k--) {
+				columns[k] = columns[k - 1];
+			}
+			if (column == null) {
+				column = new SmoothFraction[a + 1];
+			}
+			columns[0] = column;
+			for (int i = 2; i <= a; i++) {
+				column[i] = calcVictoryByColumn(r, i, j, columns);
+			}
+			double hold = 1 - column[a].toDouble();
+			if (hold >= p)
+				return j;
+			if (j > open && hold <= last)
+				return -1;
+			last = hold;
+		}
+	}
+	
+	/**
+	 * Calculates the probability of victory for a single battle, from the
+	 * columns of already calculated probabilities in columns (laid out as in
+	 * minimumDefenders()).  The same as calcVictory() with the battles held
+	 * by defenders rather than by attackers, for victory with any number of
+	 * armies remaining.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param columns
+	 */
+	private static SmoothFraction calcVictoryByColumn(RuleSet r, int a, int d, SmoothFraction[][] columns) {
+		if (Metrics.ENABLED)
+			Metrics.cells.increment();
+		SmoothFraction sum = new SmoothFraction(0, 0, 0);
+		int adice = r.attackerDice(a);
+		int ddice = r.defenderDice(d);
+		int loss = Math.min(adice, ddice);
+		for (int i = 0; i <= loss; i++) {
+			int na = a - loss + i;
+			int nd = d - i;
+			SmoothFraction v = BattleOutcome.isFinal(na, nd) ? finalVictory(na, nd, 1) : columns[i][na];
+			//impossible victories add nothing, skip the arithmetic
+			if (!v.isZero()) {
+				SmoothFraction t = new SmoothFraction(v);
+				t.multiply(r.smoothProbability(adice, ddice, i));
+				sum.add(t);
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * Calculates the probability of the attacker winning with at least n
+	 * armies remaining as a double, exactly or approximately as the mode
+	 * (EXACT or APPROXIMATE) says.  Returns NaN if the arguments are illegal.
+	 * 
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param mode
+	 * @return probability of victory
+	 */
+	public static double probVictory(int a, int d, int n, int mode) {
+		return probVictory(RuleSet.STANDARD, a, d, n, mode);
+	}
+	
+	/**
+	 * The same as probVictory(int, int, int, int), under the given rules.
+	 * 
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param mode
+	 * @return probability of victory
+	 */
+	public static double probVictory(RuleSet r, int a, int d, int n, int mode) {
+		switch (mode) {
+			case EXACT:
+				Fraction f = probVictory(r, a, d, n);
+				return (f == null) ? Double.NaN : f.toDouble();
+			case APPROXIMATE:
+				return ApproximateBattle.probVictory(r, a, d, n);
+		}
+		throw new RuntimeException("No such calculation mode:" + mode);
+	}
+	
+	/**
+	 * Calculates the probability of victory with at least n armies remaining
+	 * for a single battle, from the rows of already calculated probabilities
+	 * in window (laid out as in calcPredict()).
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param window
+	 */
+	static SmoothFraction calcVictory(RuleSet r, int a, int d, int n, SmoothFraction[][] window) {
+		if (Metrics.ENABLED)
+			Metrics.cells.increment();
+		SmoothFraction sum = new SmoothFraction(0, 0, 0);
+		int adice = r.attackerDice(a);
+		int ddice = r.defenderDice(d);
+		int loss = Math.min(adice, ddice);
+		for (int i = 0; i <= loss; i++) {
+			int na = a - loss + i;
+			int nd = d - i;
+			SmoothFraction v = BattleOutcome.isFinal(na, nd) ? finalVictory(na, nd, n) : window[loss - i][nd - 1];
+			//impossible victories add nothing, skip the arithmetic
+			if (!v.isZero()) {
+				SmoothFraction t = new SmoothFraction(v);
+				t.multiply(r.smoothProbability(adice, ddice, i));
+				sum.add(t);
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * The probability of victory with at least n armies remaining
+	 * for a battle that is already over.
+	 * @param a
+	 * @param d
+	 * @param n
+	 */
+	private static SmoothFraction finalVictory(int a, int d, int n) {
+		return new SmoothFraction((d == 0 && a >= n) ? 1 : 0, 0, 0);
+	}
+	
+	/**
+	 * Fills every empty cache cell in the rectangle up to (a, d) in
+	 * dependency order: each cell only needs cells with no more attackers
+	 * and no more defenders, so going row by row never needs recursion.
+	 * The rows the current cell depends on are kept in a window as they are
+	 * found or calculated, so the cache is only consulted once per cell.
+	 * 
+	 * Several threads may fill overlapping rectangles at once.  A thread only
+	 * claims a cell once every cell before it in its rectangle is finished, so
+	 * it never waits on anything while calculating and nobody deadlocks.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param store false to calculate (a, d) itself without caching it
+	 * @return the distribution for (a, d)
+	 */
+	private static OutcomeDistribution fill(final RuleSet r, final int a, final int d, boolean store) {
+		return fill(r, 1, a, d, store);
+	}
+	
+	/**
+	 * Fills the cache as fill(RuleSet, int, int, boolean) does, for battles
+	 * fought until the attacker is down to t armies, no more than the most
+	 * dice the attacker may roll.  a must be above t.
+	 * @param r
+	 * @param t
+	 * @param a
+	 * @param d
+	 * @param store false to calculate (a, d) itself without caching it
+	 * @return the distribution for (a, d)
+	 */
+	private static OutcomeDistribution fill(final RuleSet r, final int t, final int a, final int d, boolean store) {
+		//ring of rows: window[k] holds the row for k fewer attackers
+		final OutcomeDistribution[][] window = new OutcomeDistribution[r.window()][];
+		BattleCache.Cursor cells = cache.cursor(r, t);
+		for (int i = t + 1; i <= a; i++) {
+			OutcomeDistribution[] row = advance(window, d);
+			for (int j = 1; j <= d; j++) {
+				if (i == a && j == d && !store) {
+					row[j - 1] = calcPredict(r, t, i, j, window);
+				} else {
+					final int ci = i;
+					final int cj = j;
+					row[j - 1] = cells.computeIfAbsent(i, j, () -> readOrCalc(r, t, ci, cj, window));
+				}
+			}
+		}
+		return window[0][d - 1];
+	}
+	
+	/**
+	 * Reads a single battle from the table if it is there, otherwise
+	 * calculates it as calcPredict(r, t, a, d, window) does.  Only fights to
+	 * the death (t of 1) are in tables.
+	 * @param r
+	 * @param t
+	 * @param a
+	 * @param d
+	 * @param window
+	 */
+	private static OutcomeDistribution readOrCalc(RuleSet r, int t, int a, int d, OutcomeDistribution[][] window) {
+		BattleTable table = (t == 1) ? tableFor(r) : null;
+		if (table != null && table.contains(a, d))
+			return table.read(a, d);
+		return calcPredict(r, t, a, d, window);
+	}
+	
+	/**
+	 * Moves a ring of rows on by one attacker, recycling the oldest row as the
+	 * new current row, and returns the new current row.
+	 * @param window
+	 * @param d length of the rows
+	 */
+	static OutcomeDistribution[] advance(OutcomeDistribution[][] window, int d) {
+		OutcomeDistribution[] row = window[window.length - 1];
+		for (int k = window.length - 1; k > 0; k--) {
+			window[k] = window[k - 1];
+		}
+		if (row == null) {
+			row = new OutcomeDistribution[d];
+		}
+		window[0] = row;
+		return row;
+	}
+	
+	/**
+	 * Does the actual calculation for predict(), caching everything it depends
+	 * on but not the result.  No argument bounds checking whatsoever - use
+	 * without predict() at your own risk.
+	 * @param a
+	 * @param d
+	 */
+	public static BattleOutcomeSet calcPredict(int a, int d) {
+		return fill(RuleSet.STANDARD, a, d, false).toOutcomeSet();
+	}
+	
+	/**
+	 * Calculates a single battle with the standard rules from the already
+	 * calculated battles with fewer armies, as calcPredict(r, a, d, window) does.
+	 * @param a
+	 * @param d
+	 * @param window
+	 */
+	static OutcomeDistribution calcPredict(int a, int d, OutcomeDistribution[][] window) {
+		return calcPredict(RuleSet.STANDARD, a, d, window);
+	}
+	
+	/**
+	 * Calculates a single battle from the already calculated battles with
+	 * fewer armies.  window[k] is the row of battles with a - k attackers,
+	 * indexed by defenders - 1.  Rows of finished battles may be null.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param window
+	 */
+	static OutcomeDistribution calcPredict(RuleSet r, int a, int d, OutcomeDistribution[][] window) {
+		return calcPredict(r, 1, a, d, window);
+	}
+	
+	/**
+	 * Calculates a single battle fought until the attacker is down to t
+	 * armies, as calcPredict(RuleSet, int, int, OutcomeDistribution[][]) does.
+	 * @param r
+	 * @param t
+	 * @param a
+	 * @param d
+	 * @param window
+	 */
+	private static OutcomeDistribution calcPredict(RuleSet r, int t, int a, int d, OutcomeDistribution[][] window) {
+		int loss = r.losses(a, d);
+		OutcomeDistribution[] next = new OutcomeDistribution[loss + 1];
+		for (int i = 0; i <= loss; i++) {
+			int na = a - loss + i;
+			int nd = d - i;
+			if (!BattleOutcome.isFinal(na, nd, t))
+				next[i] = window[loss - i][nd - 1];
+		}
+		return calcPredict(r, t, a, d, next);
+	}
+	
+	/**
+	 * Calculates a single battle from the battles it can turn into after one
+	 * roll.  next[i] is the battle left when the defender loses i armies, or
+	 * null if that battle is over.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param next
+	 */
+	private static OutcomeDistribution calcPredict(RuleSet r, int a, int d, OutcomeDistribution[] next) {
+		return calcPredict(r, 1, a, d, next);
+	}
+	
+	/**
+	 * Calculates a single battle fought until the attacker is down to t
+	 * armies from the battles it can turn into after one roll.
+	 * @param r
+	 * @param t
+	 * @param a
+	 * @param d
+	 * @param next
+	 */
+	private static OutcomeDistribution calcPredict(RuleSet r, int t, int a, int d, OutcomeDistribution[] next) {
+		if (Metrics.ENABLED)
+			Metrics.cells.increment();
+		//create empty distribution of battle outcomes
+		OutcomeDistribution merger = (t == 1) ? new OutcomeDistribution(a, d) : new OutcomeDistribution(a, d, t, Math.min(t, r.window() - 1));
+		//find number of dice attacker is allowed
+		int adice = r.attackerDice(a);
+		//find number of dice defender is allowed
+		int ddice = r.defenderDice(d);
+		//find the total number of army losses there will be
+		int loss = Math.min(adice, ddice);
+		//distribute them in all possible ways between attacker and defender...
+		for (int i = 0; i <= loss; i++) {
+			/*
+			 * this is the real meat of the program.  For each way of
+			 * distributing the losses:
+			 * 
+			 * 1 finds the number of men the attacker and the defender
+			 *    will have remaining
+			 * 2 looks up the rules' probability of the
+			 *    dice roll required to produce those losses
+			 * 3 if the battle is over at that point, merges the final outcome
+			 *    with that probability directly, otherwise merges every outcome
+			 *    of the already calculated smaller battle, multiplied by that
+			 *    probability.  This adds all the matching outcomes' probabilities.
+			 */ 
+			int na = a - loss + i;
+			int nd = d - i;
+			SmoothFraction p = r.smoothProbability(adice, ddice, i);
+			if (next[i] == null) {
+				merger.merge(na, nd, new SmoothFraction(p));
+			} else {
+				merger.mergeMultiply(next[i], p);
+			}
+		}
+		//you've now merged all the outcome sets together, return!
+		return merger;
+	}
+
+}
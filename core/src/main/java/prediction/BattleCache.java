@@ -0,0 +1,479 @@
+package prediction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe cache of calculated battles, keyed by (rules, attackers, defenders),
+ * and the retreat threshold for battles not fought to the death.
+ * There is no global lock: cells live in tiles of TILE by TILE battles, found
+ * through a ConcurrentHashMap of the tiles in use, and each cell is a
+ * FutureTask that exactly one thread runs.  Any other thread asking for the
+ * same cell waits on that task alone, then sees the finished result.  A tile
+ * is only made when a battle in it is first cached, so the cache grows with
+ * the battles asked for and not their bounding rectangle, and nothing is
+ * ever copied to make room.  Filling a grid in order mostly stays in one
+ * tile, which a Cursor keeps hold of, so most cells cost an array access
+ * rather than a map lookup.
+ *
+ * The cache has a memory budget.  Each finished cell is weighed (see
+ * OutcomeDistribution.weight()), and once the total goes over the budget
+ * cells are thrown out until it is back under LOW_WATER of it.  Cells that
+ * have not been used since the last eviction go first, and among those the
+ * ones cheapest to calculate again for the memory they free: a battle of a
+ * attackers and d defenders takes about a * d smaller battles to rebuild from
+ * nothing.  Nothing breaks when a cell is thrown out; it is just calculated
+ * again when it is next needed.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+class BattleCache {
+	/** fraction of the budget evictions bring the cache back down to */
+	private static final double LOW_WATER = 0.75;
+	/** armies on either side must be fewer than this to fit in a key */
+	private static final int MAX_ARMIES = 1 << 24;
+	/** a tile is TILE attackers by TILE defenders */
+	private static final int TILE_BITS = 6;
+	private static final int TILE = 1 << TILE_BITS;
+	/** rough heap size of an empty tile, counted in the weight */
+	private static final long TILE_BYTES = 32 + 8L * TILE * TILE;
+
+	private final ConcurrentHashMap<Long, Tile> tiles = new ConcurrentHashMap<Long, Tile>();
+	/** cells calculated or being calculated */
+	private final AtomicInteger size = new AtomicInteger();
+	/** estimated bytes held by tiles and finished cells */
+	private final AtomicLong weight = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	/** true while a thread is evicting, so only one does at a time */
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	/** most bytes to hold */
+	private volatile long budget;
+
+	/**
+	 * A cache that may hold budget bytes
+	 * @param budget
+	 */
+	BattleCache(long budget) {
+		setBudget(budget);
+	}
+
+	/**
+	 * TILE by TILE cells of one kind of battle, (a, d) at
+	 * (a % TILE) * TILE + d % TILE.  Once dead a tile is out of the cache,
+	 * and any cell put in it afterwards is taken out again.
+	 */
+	private static class Tile {
+		final Long key;
+		final AtomicReferenceArray<Cell> cells = new AtomicReferenceArray<Cell>(TILE * TILE);
+		//cells in the tile
+		final AtomicInteger count = new AtomicInteger();
+		volatile boolean dead;
+
+		Tile(Long key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * A cell of the cache: the calculation of one battle, and once it is
+	 * done, what it weighs and whether it has been used lately.
+	 */
+	private static class Cell extends FutureTask<OutcomeDistribution> {
+		final Tile tile;
+		final int index;
+		final int a;
+		final int d;
+		//0 until the calculation is done and counted in the total
+		volatile long weight;
+		volatile boolean used;
+		//true once out of the cache, so its weight is never counted again
+		boolean removed;
+
+		Cell(Tile tile, int index, int a, int d, Callable<OutcomeDistribution> c) {
+			super(c);
+			this.tile = tile;
+			this.index = index;
+			this.a = a;
+			this.d = d;
+		}
+	}
+
+	/**
+	 * Walks the cache for one kind of battle, holding on to the last tile it
+	 * used.  Not thread-safe; each thread filling a grid has its own.
+	 */
+	final class Cursor {
+		private final int id;
+		private Tile tile;
+		//which tile it is, in tiles of attackers and defenders
+		private int ta;
+		private int td;
+
+		private Cursor(int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Gets a calculated battle as BattleCache.computeIfAbsent() does
+		 * @param a
+		 * @param d
+		 * @param c
+		 */
+		OutcomeDistribution computeIfAbsent(int a, int d, Callable<OutcomeDistribution> c) {
+			if (tile == null || tile.dead || (a >>> TILE_BITS) != ta || (d >>> TILE_BITS) != td) {
+				tile = tile(key(id, a, d));
+				ta = a >>> TILE_BITS;
+				td = d >>> TILE_BITS;
+			}
+			return BattleCache.this.computeIfAbsent(tile, index(a, d), a, d, c);
+		}
+	}
+
+	/**
+	 * A Cursor over battles fought until the attacker is down to t armies
+	 * @param r
+	 * @param t
+	 */
+	Cursor cursor(RuleSet r, int t) {
+		return new Cursor(r.cacheId(t));
+	}
+
+	/**
+	 * A finished cell as it stood when an eviction started
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		final Cell cell;
+		final boolean used;
+		//smaller battles to rebuild per byte freed
+		final double cost;
+
+		Candidate(Cell cell, boolean used, double cost) {
+			this.cell = cell;
+			this.used = used;
+			this.cost = cost;
+		}
+
+		public int compareTo(Candidate c) {
+			if (used != c.used)
+				return used ? 1 : -1;
+			return Double.compare(cost, c.cost);
+		}
+	}
+
+	/**
+	 * Gets a calculated battle, waiting if another thread is calculating it.
+	 * Returns null if nobody has started calculating it.
+	 * @param r
+	 * @param a
+	 * @param d
+	 */
+	OutcomeDistribution get(RuleSet r, int a, int d) {
+		return get(r, 1, a, d);
+	}
+
+	/**
+	 * Gets a calculated battle fought until the attacker is down to t armies,
+	 * as get(RuleSet, int, int) does.
+	 * @param r
+	 * @param t
+	 * @param a
+	 * @param d
+	 */
+	OutcomeDistribution get(RuleSet r, int t, int a, int d) {
+		Tile tile = tiles.get(key(r.cacheId(t), a, d));
+		Cell f = (tile == null) ? null : tile.cells.get(index(a, d));
+		if (f == null)
+			return null;
+		hit(f);
+		return await(f);
+	}
+
+	/**
+	 * Gets a calculated battle, calculating it with c if it is not there.
+	 * c is run at most once per cell, no matter how many threads ask for it
+	 * at the same time.  If c fails the cell is left empty and the failure
+	 * is thrown to every thread that was waiting on it.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param c
+	 */
+	OutcomeDistribution computeIfAbsent(RuleSet r, int a, int d, Callable<OutcomeDistribution> c) {
+		return computeIfAbsent(r, 1, a, d, c);
+	}
+
+	/**
+	 * Gets a calculated battle fought until the attacker is down to t armies,
+	 * calculating it with c if it is not there, as
+	 * computeIfAbsent(RuleSet, int, int, Callable) does.
+	 * @param r
+	 * @param t
+	 * @param a
+	 * @param d
+	 * @param c
+	 */
+	OutcomeDistribution computeIfAbsent(RuleSet r, int t, int a, int d, Callable<OutcomeDistribution> c) {
+		return computeIfAbsent(tile(key(r.cacheId(t), a, d)), index(a, d), a, d, c);
+	}
+
+	/**
+	 * computeIfAbsent() for the cell at index in tile
+	 * @param tile
+	 * @param index
+	 * @param a
+	 * @param d
+	 * @param c
+	 */
+	private OutcomeDistribution computeIfAbsent(Tile tile, int index, int a, int d, Callable<OutcomeDistribution> c) {
+		Cell f = tile.cells.get(index);
+		while (f == null) {
+			Cell task = new Cell(tile, index, a, d, c);
+			if (tile.cells.compareAndSet(index, null, task)) {
+				//this thread won the cell, calculate it
+				size.incrementAndGet();
+				tile.count.incrementAndGet();
+				//a tile thrown out meanwhile must not keep the cell
+				if (tile.dead)
+					remove(task);
+				misses.incrementAndGet();
+				task.run();
+				try {
+					OutcomeDistribution o = task.get();
+					if (count(task, o.weight()) > budget)
+						evict();
+					return o;
+				} catch (Exception e) {
+					remove(task);
+				}
+				f = task;
+			} else {
+				f = tile.cells.get(index);
+			}
+		}
+		hit(f);
+		return await(f);
+	}
+
+	/**
+	 * Removes every cell.  Calculations already running finish normally.
+	 */
+	void clear() {
+		for (Tile tile : tiles.values()) {
+			drop(tile);
+		}
+	}
+
+	/**
+	 * Return the number of cells calculated or being calculated.
+	 */
+	int size() {
+		return size.get();
+	}
+
+	/**
+	 * Sets the most bytes to hold, evicting right away if there is more.
+	 * @param bytes
+	 * @throws RuntimeException if bytes is negative
+	 */
+	void setBudget(long bytes) {
+		if (bytes < 0)
+			throw new RuntimeException("Cache budget must not be negative.");
+		budget = bytes;
+		if (weight.get() > bytes)
+			evict();
+	}
+
+	/**
+	 * Return the most bytes to hold.
+	 */
+	long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Takes a snapshot of the hit, miss and eviction counts and the current size.
+	 */
+	CacheStats stats() {
+		return new CacheStats(hits.get(), misses.get(), evictions.get(), size.get(), weight.get(), budget);
+	}
+
+	/**
+	 * Counts a hit on a cell and marks it used
+	 * @param f
+	 */
+	private void hit(Cell f) {
+		hits.incrementAndGet();
+		if (!f.used)
+			f.used = true;
+	}
+
+	/**
+	 * Throws out cells until the total weight is under LOW_WATER of the budget.
+	 * Unused cells go first, cheapest to rebuild per byte first; every cell
+	 * looked at loses its used mark, so it has to be used again to survive
+	 * the next eviction.  Tiles left empty are thrown out too.  If another
+	 * thread is already evicting this returns right away.
+	 */
+	private void evict() {
+		if (!evicting.compareAndSet(false, true))
+			return;
+		try {
+			long target = (long)(budget * LOW_WATER);
+			//rank the finished cells once, marks and all, so the sort sees a fixed order
+			ArrayList<Candidate> finished = new ArrayList<Candidate>();
+			for (Tile tile : tiles.values()) {
+				for (int i = 0; i < TILE * TILE; i++) {
+					Cell f = tile.cells.get(i);
+					long w = (f == null) ? 0 : f.weight;
+					if (w > 0)
+						finished.add(new Candidate(f, f.used, (double)f.a * f.d / w));
+				}
+			}
+			Collections.sort(finished);
+			for (int i = 0; i < finished.size(); i++) {
+				Cell f = finished.get(i).cell;
+				if (weight.get() <= target) {
+					f.used = false;
+				} else if (remove(f)) {
+					evictions.incrementAndGet();
+				}
+			}
+			for (Tile tile : tiles.values()) {
+				if (tile.count.get() == 0)
+					drop(tile);
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	/**
+	 * Adds a finished cell's weight to the total, unless it has already
+	 * been removed (by clear()) while it was being calculated.
+	 * @param f
+	 * @param w
+	 * @return the new total weight
+	 */
+	private long count(Cell f, long w) {
+		synchronized (f) {
+			if (f.removed)
+				return weight.get();
+			f.weight = w;
+			return weight.addAndGet(w);
+		}
+	}
+
+	/**
+	 * Removes a cell if it is still in the cache, taking its weight off the total
+	 * @param f
+	 * @return true if it was removed
+	 */
+	private boolean remove(Cell f) {
+		if (!f.tile.cells.compareAndSet(f.index, f, null))
+			return false;
+		size.decrementAndGet();
+		f.tile.count.decrementAndGet();
+		synchronized (f) {
+			f.removed = true;
+			weight.addAndGet(-f.weight);
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the tile for a key, making it if there is none
+	 * @param k
+	 */
+	private Tile tile(Long k) {
+		Tile tile = tiles.get(k);
+		if (tile == null) {
+			Tile t = new Tile(k);
+			tile = tiles.putIfAbsent(k, t);
+			if (tile == null) {
+				tile = t;
+				weight.addAndGet(TILE_BYTES);
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * Throws a tile and every cell in it out of the cache.  The tile is
+	 * marked dead before its cells are taken out, so a cell put in while
+	 * that happens is either found here or sees the mark and takes itself
+	 * out.
+	 * @param tile
+	 */
+	private void drop(Tile tile) {
+		if (!tiles.remove(tile.key, tile))
+			return;
+		tile.dead = true;
+		weight.addAndGet(-TILE_BYTES);
+		for (int i = 0; i < TILE * TILE; i++) {
+			Cell f = tile.cells.get(i);
+			if (f != null)
+				remove(f);
+		}
+	}
+
+	/**
+	 * Waits for a cell to be calculated and returns it
+	 * @param f
+	 */
+	private static OutcomeDistribution await(FutureTask<OutcomeDistribution> f) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return f.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable t = e.getCause();
+					if (t instanceof RuntimeException)
+						throw (RuntimeException)t;
+					if (t instanceof Error)
+						throw (Error)t;
+					throw new RuntimeException(t);
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Packs the kind of battle (see RuleSet.cacheId()) and the tile holding
+	 * a cell into one map key
+	 * @param id
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if there are too many armies to pack
+	 */
+	private static Long key(int id, int a, int d) {
+		if (a >= MAX_ARMIES || d >= MAX_ARMIES)
+			throw new RuntimeException("Too many armies to cache.");
+		return Long.valueOf(((long)id << 36) | ((long)(a >>> TILE_BITS) << 18) | (d >>> TILE_BITS));
+	}
+
+	/**
+	 * Where a cell is within its tile
+	 * @param a
+	 * @param d
+	 */
+	private static int index(int a, int d) {
+		return ((a & (TILE - 1)) << TILE_BITS) | (d & (TILE - 1));
+	}
+}
@@ -0,0 +1,178 @@
+package prediction;
+
+/**
+ * Expected survivors, their variances and the probability of victory for
+ * every fight to the death up to a given size, without the outcomes
+ * themselves.  Each battle is worth just five numbers, the expected
+ * attackers and defenders left, the expected squares of those and the
+ * probability of victory, and each is the same weighted sum of the battles
+ * one roll away as a whole distribution would be.  So the table is filled
+ * bottom-up in doubles like ApproximateBattle, holding forty bytes a battle
+ * instead of a distribution, and every battle in it is answered at once.
+ * For quantiles use OutcomeDistribution.summary().
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class BattleMoments {
+	//offsets of the numbers kept for each battle
+	private static final int ATTACKERS = 0;
+	private static final int ATTACKER_SQUARES = 1;
+	private static final int DEFENDERS = 2;
+	private static final int DEFENDER_SQUARES = 3;
+	private static final int VICTORY = 4;
+	private static final int FIELDS = 5;
+
+	private final int attackers;
+	private final int defenders;
+	//the numbers for (a, d) start at FIELDS * (a * (defenders + 1) + d)
+	private final double[] moments;
+
+	private BattleMoments(int attackers, int defenders) {
+		this.attackers = attackers;
+		this.defenders = defenders;
+		moments = new double[FIELDS * (attackers + 1) * (defenders + 1)];
+	}
+
+	/**
+	 * Works out the moments of every battle up to a attackers and d
+	 * defenders with the standard rules.  Returns null if the arguments are
+	 * illegal.
+	 * @param a
+	 * @param d
+	 */
+	public static BattleMoments compute(int a, int d) {
+		return compute(RuleSet.STANDARD, a, d);
+	}
+
+	/**
+	 * Works out the moments of every battle up to a attackers and d
+	 * defenders under the given rules.  Returns null if the arguments are
+	 * illegal.
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if the table would be too big for an array
+	 */
+	public static BattleMoments compute(RuleSet r, int a, int d) {
+		if (a < 1 || d < 0)
+			return null;
+		if ((long)FIELDS * (a + 1) * (d + 1) > Integer.MAX_VALUE)
+			throw new RuntimeException("Too many battles for one table.");
+		BattleMoments b = new BattleMoments(a, d);
+		double[] m = b.moments;
+		double[] p = r.kernel;
+		//finished battles: the attacker down to one, or the defender wiped out
+		for (int j = 1; j <= d; j++) {
+			int c = b.cell(1, j);
+			m[c + ATTACKERS] = 1;
+			m[c + ATTACKER_SQUARES] = 1;
+			m[c + DEFENDERS] = j;
+			m[c + DEFENDER_SQUARES] = (double)j * j;
+		}
+		for (int i = 2; i <= a; i++) {
+			int c = b.cell(i, 0);
+			m[c + ATTACKERS] = i;
+			m[c + ATTACKER_SQUARES] = (double)i * i;
+			m[c + VICTORY] = 1;
+		}
+		for (int i = 2; i <= a; i++) {
+			int adice = r.attackerDice(i);
+			for (int j = 1; j <= d; j++) {
+				int ddice = r.defenderDice(j);
+				int loss = Math.min(adice, ddice);
+				int off = r.offset(adice, ddice);
+				int c = b.cell(i, j);
+				for (int k = 0; k <= loss; k++) {
+					double q = p[off + k];
+					int n = b.cell(i - loss + k, j - k);
+					for (int f = 0; f < FIELDS; f++) {
+						m[c + f] += q * m[n + f];
+					}
+				}
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Where the numbers for (a, d) start
+	 * @throws RuntimeException if the battle is not in the table
+	 */
+	private int cell(int a, int d) {
+		if (a < 1 || a > attackers || d < 0 || d > defenders)
+			throw new RuntimeException("Battle not in the table.");
+		return FIELDS * (a * (defenders + 1) + d);
+	}
+
+	/**
+	 * The expected number of attacking armies left at the end of (a, d)
+	 * @param a
+	 * @param d
+	 */
+	public double expectedAttackers(int a, int d) {
+		return moments[cell(a, d) + ATTACKERS];
+	}
+
+	/**
+	 * The expected number of defending armies left at the end of (a, d)
+	 * @param a
+	 * @param d
+	 */
+	public double expectedDefenders(int a, int d) {
+		return moments[cell(a, d) + DEFENDERS];
+	}
+
+	/**
+	 * The variance of the number of attacking armies left at the end of (a, d)
+	 * @param a
+	 * @param d
+	 */
+	public double attackerVariance(int a, int d) {
+		int c = cell(a, d);
+		return Math.max(0, moments[c + ATTACKER_SQUARES] - moments[c + ATTACKERS] * moments[c + ATTACKERS]);
+	}
+
+	/**
+	 * The variance of the number of defending armies left at the end of (a, d)
+	 * @param a
+	 * @param d
+	 */
+	public double defenderVariance(int a, int d) {
+		int c = cell(a, d);
+		return Math.max(0, moments[c + DEFENDER_SQUARES] - moments[c + DEFENDERS] * moments[c + DEFENDERS]);
+	}
+
+	/**
+	 * The probability that the attacker wins (a, d)
+	 * @param a
+	 * @param d
+	 */
+	public double probVictory(int a, int d) {
+		return moments[cell(a, d) + VICTORY];
+	}
+
+	/**
+	 * The most attackers of any battle in the table
+	 */
+	public int getAttackers() {
+		return attackers;
+	}
+
+	/**
+	 * The most defenders of any battle in the table
+	 */
+	public int getDefenders() {
+		return defenders;
+	}
+
+	/**
+	 * The moments of the biggest battle in human readable form
+	 */
+	public String toString() {
+		return "Expected attackers left: " + expectedAttackers(attackers, defenders) + " (variance " + attackerVariance(attackers, defenders) + ")\n"
+			+ "Expected defenders left: " + expectedDefenders(attackers, defenders) + " (variance " + defenderVariance(attackers, defenders) + ")\n"
+			+ "Probability of successful invasion: " + probVictory(attackers, defenders);
+	}
+}
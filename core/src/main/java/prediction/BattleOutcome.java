@@ -1,5 +1,6 @@
 package prediction;
 import fraction.*;
+import java.io.IOException;
 
 /**
  * Class to represent a single outcome of a battle - no more 
@@ -39,7 +40,19 @@ public class BattleOutcome {
 	 * @param d
 	 */
 	static boolean isFinal(int a, int d) {
-		return ((a == 1 && d >= 1) || (a > 1 && d == 0));
+		return isFinal(a, d, 1);
+	}
+	
+	/**
+	 * determines if the passed army sizes are a finished battle
+	 * for an attacker who stops once down to k armies
+	 * 
+	 * @param a
+	 * @param d
+	 * @param k
+	 */
+	static boolean isFinal(int a, int d, int k) {
+		return ((a >= 1 && a <= k && d >= 1) || (a > 1 && d == 0));
 	}
 	
 	/**
@@ -79,6 +92,39 @@ public class BattleOutcome {
 		}
 	}
 	
+	/**
+	 * Builds a BattleOutcome of a battle fought until the attacker
+	 * is down to k armies, with the given probability
+	 * 
+	 * @param a
+	 * @param d
+	 * @param f
+	 * @param k
+	 * @throws RuntimeException when not a valid completed battle
+	 */
+	BattleOutcome(int a, int d, Fraction f, int k) throws RuntimeException {
+		if (!isFinal(a, d, k)) {
+			throw new RuntimeException("Not a valid final result.");
+		} else {
+			a_left = a;
+			d_left = d;
+			probability = f;
+		}
+	}
+	
+	/**
+	 * Builds a BattleOutcome with the passed army sizes and
+	 * the given probability
+	 * 
+	 * @param a
+	 * @param d
+	 * @param f
+	 * @throws RuntimeException when not a valid completed battle
+	 */
+	public BattleOutcome(int a, int d, SmoothFraction f) throws RuntimeException {
+		this(a, d, f.toFraction());
+	}
+	
 	/**
 	 * Copy constructor
 	 * 
@@ -97,9 +143,19 @@ public class BattleOutcome {
 	 * @param f
 	 */
 	public BattleOutcome cloneMultiply(Fraction f) {
-		Fraction t = new Fraction(probability);
-		t.multiply(f);
-		return new BattleOutcome(a_left, d_left, t);
+		BattleOutcome b = new BattleOutcome(this);
+		b.probability.multiply(f);
+		return b;
+	}
+	
+	/**
+	 * Clones self but multiplies the probability of the
+	 * clone by the given SmoothFraction
+	 * 
+	 * @param f
+	 */
+	public BattleOutcome cloneMultiply(SmoothFraction f) {
+		return cloneMultiply(f.toFraction());
 	}
 	
 	/**
@@ -109,6 +165,22 @@ public class BattleOutcome {
 		probability.reduce();
 	}
 	
+	/**
+	 * gets the number of attackers remaining
+	 * @return attackers remaining
+	 */
+	public int getAttackers() {
+		return a_left;
+	}
+	
+	/**
+	 * gets the number of defenders remaining
+	 * @return defenders remaining
+	 */
+	public int getDefenders() {
+		return d_left;
+	}
+	
 	/**
 	 * Determines whether or not the attackers were victorious with at least n armies remaining
 	 */
@@ -129,4 +201,16 @@ public class BattleOutcome {
 	public String toString(int type) {
 		return "Attacker: " + a_left + " Defender: " + d_left + " Probability: " + probability.toString(type);
 	}
+	
+	/**
+	 * Writes the outcome to out, in the same form as toString(type)
+	 * @param out
+	 * @param type display type
+	 * @param digits significant digits of the decimal, 0 for all a double has
+	 * @throws IOException if out does
+	 */
+	public void writeTo(Appendable out, int type, int digits) throws IOException {
+		out.append("Attacker: ").append(Integer.toString(a_left)).append(" Defender: ").append(Integer.toString(d_left)).append(" Probability: ");
+		probability.writeTo(out, type, digits);
+	}
 }
\ No newline at end of file
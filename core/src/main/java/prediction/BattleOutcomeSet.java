@@ -1,5 +1,6 @@
 package prediction;
 import fraction.*;
+import java.io.IOException;
 
 /**
  * Represents a list of BattleOutcomes - with plenty of helpful functions
@@ -69,18 +70,41 @@ public class BattleOutcomeSet {
 	 * Represent BattleOutcomeSet as a string.
 	 */
 	public String toString() {
-		if (head == null) {
-			return "";
-		} else {
-			String b = "";
-			BattleOutcomeNode p = head;
-			while (p != null) {
-				b += p.data;
-				if (p.next != null)
-					b += "\n";
-				p = p.next;
-			}
-			return b;
+		StringBuilder b = new StringBuilder();
+		try {
+			writeTo(b);
+		} catch (IOException e) {
+			//a StringBuilder does not throw
+		}
+		return b.toString();
+	}
+	
+	/**
+	 * Writes the outcomes to out one line at a time, in the same form as
+	 * toString(), with the default display type and digits.  Nothing is
+	 * built up in memory, so big sets can go straight to a file or the
+	 * console.
+	 * @param out
+	 * @throws IOException if out does
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		writeTo(out, Fraction.default_print, Fraction.default_digits);
+	}
+	
+	/**
+	 * Writes the outcomes to out one line at a time, separated by newlines
+	 * @param out
+	 * @param type display type
+	 * @param digits significant digits of the decimals, 0 for all a double has
+	 * @throws IOException if out does
+	 */
+	public void writeTo(Appendable out, int type, int digits) throws IOException {
+		BattleOutcomeNode p = head;
+		while (p != null) {
+			p.data.writeTo(out, type, digits);
+			if (p.next != null)
+				out.append('\n');
+			p = p.next;
 		}
 	}
 	
@@ -178,6 +202,15 @@ public class BattleOutcomeSet {
 		}
 	}
 	
+	/**
+	 * Generate a new BattleOutcomeSet with the same outcomes as this,
+	 * but with all probabilities multiplied by f
+	 * @param f
+	 */
+	public BattleOutcomeSet cloneMultiply(SmoothFraction f) {
+		return cloneMultiply(f.toFraction());
+	}
+	
 	/**
 	 * Merge another BattleOutcomeSet's BattleOutcomes into this set.
 	 * @param b
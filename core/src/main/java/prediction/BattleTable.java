@@ -0,0 +1,424 @@
+package prediction;
+import fraction.*;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A precomputed table of battle outcome distributions stored in a file, so a
+ * fresh JVM can answer without recalculating.  The file is memory mapped and
+ * each battle is decoded only when it is asked for.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int magic ("RRBT"), int version, int kind (Battle.EXACT or Battle.APPROXIMATE),
+ *   int attackers, int defenders, long offset of the index
+ *   one record per battle, attackers 2..A then defenders 1..D
+ *   index: one long offset per record, plus the offset just past the last one
+ * </pre>
+ * A record is the two slot counts of the distribution (attackers + 1 and
+ * defenders + 1) followed by every attacker win slot and then every defender
+ * win slot.  In an exact table a slot is the int power of two (-1 for an
+ * impossible outcome), the int power of three, the int length of the
+ * numerator and the numerator's two's complement bytes.  In an approximate
+ * table a slot is a double.
+ *
+ * Run as a program to generate a table:
+ * <pre>
+ *   java prediction.BattleTable file attackers defenders [exact|approximate]
+ * </pre>
+ * The build runs it to put an exact table of the common battles in the jar
+ * as the resource prediction/battles.rrbt (see bundled()), which Battle
+ * reads from unless told to use another table.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class BattleTable {
+	private static final int MAGIC = 0x52524254;
+	private static final int VERSION = 1;
+	private static final int HEADER = 28;
+	//the table built into the jar, next to this class
+	private static final String BUNDLED = "battles.rrbt";
+	//the most a single mapping may cover
+	private static final long SEGMENT = 1L << 30;
+
+	private final int kind;
+	private final int attackers;
+	private final int defenders;
+	//the file, mapped in pieces of at most SEGMENT bytes
+	private final ByteBuffer[] segments;
+	private final long indexOffset;
+
+	/**
+	 * Opens and maps a table file.  Nothing but the header is read.
+	 * @param file
+	 * @throws IOException if the file cannot be read or is not a battle table
+	 */
+	public static BattleTable open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			long size = ch.size();
+			ByteBuffer[] segments = new ByteBuffer[(int)((size + SEGMENT - 1) / SEGMENT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * SEGMENT;
+				segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT, size - start));
+			}
+			return new BattleTable(segments, size);
+		} finally {
+			//the mappings stay valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads the exact table built into the jar into memory.  Only the header
+	 * is decoded; battles are decoded when they are asked for, as with open().
+	 * Returns null if the jar was built without one or it cannot be read.
+	 */
+	public static BattleTable bundled() {
+		InputStream in = BattleTable.class.getResourceAsStream(BUNDLED);
+		if (in == null)
+			return null;
+		try {
+			try {
+				//pieces of at most SEGMENT bytes, as for a mapped file
+				java.util.List<ByteBuffer> pieces = new java.util.ArrayList<ByteBuffer>();
+				long size = 0;
+				while (true) {
+					byte[] b = in.readNBytes((int)SEGMENT);
+					if (b.length == 0)
+						break;
+					pieces.add(ByteBuffer.wrap(b));
+					size += b.length;
+					if (b.length < SEGMENT)
+						break;
+				}
+				return new BattleTable(pieces.toArray(new ByteBuffer[pieces.size()]), size);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the header of a mapped table
+	 * @param segments
+	 * @param size
+	 * @throws IOException if it is not a battle table
+	 */
+	private BattleTable(ByteBuffer[] segments, long size) throws IOException {
+		this.segments = segments;
+		if (size < HEADER) throw new IOException("Not a battle table");
+		ByteBuffer h = bytes(0, HEADER);
+		if (h.getInt() != MAGIC || h.getInt() != VERSION) throw new IOException("Not a battle table");
+		kind = h.getInt();
+		attackers = h.getInt();
+		defenders = h.getInt();
+		indexOffset = h.getLong();
+		if ((kind != Battle.EXACT && kind != Battle.APPROXIMATE) || indexOffset + 8L * (records() + 1) > size)
+			throw new IOException("Corrupt battle table");
+	}
+
+	/**
+	 * The kind of table: Battle.EXACT or Battle.APPROXIMATE
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * The most attackers in the table
+	 */
+	public int getAttackers() {
+		return attackers;
+	}
+
+	/**
+	 * The most defenders in the table
+	 */
+	public int getDefenders() {
+		return defenders;
+	}
+
+	/**
+	 * Determines whether the battle (a, d) is in the table
+	 * @param a
+	 * @param d
+	 */
+	public boolean contains(int a, int d) {
+		return a > 1 && d > 0 && a <= attackers && d <= defenders;
+	}
+
+	/**
+	 * Decodes the distribution of the battle (a, d) from an exact table
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if the table is not exact or does not contain the battle
+	 */
+	public OutcomeDistribution read(int a, int d) {
+		if (kind != Battle.EXACT) throw new RuntimeException("Not an exact battle table");
+		ByteBuffer b = record(a, d);
+		int na = b.getInt();
+		int nd = b.getInt();
+		OutcomeDistribution o = new OutcomeDistribution(na - 1, nd - 1);
+		for (int i = 0; i < na; i++) {
+			SmoothFraction f = readSlot(b);
+			if (f != null)
+				o.merge(i, 0, f);
+		}
+		for (int i = 0; i < nd; i++) {
+			SmoothFraction f = readSlot(b);
+			if (f != null)
+				o.merge(1, i, f);
+		}
+		return o;
+	}
+
+	/**
+	 * Decodes the distribution of the battle (a, d) from an approximate table
+	 * @param a
+	 * @param d
+	 * @throws RuntimeException if the table is not approximate or does not contain the battle
+	 */
+	public ApproximateOutcomeDistribution readApproximate(int a, int d) {
+		if (kind != Battle.APPROXIMATE) throw new RuntimeException("Not an approximate battle table");
+		ByteBuffer b = record(a, d);
+		ApproximateOutcomeDistribution o = new ApproximateOutcomeDistribution(b.getInt() - 1, b.getInt() - 1);
+		for (int i = 0; i < o.attackerWins.length; i++) {
+			o.attackerWins[i] = b.getDouble();
+		}
+		for (int i = 0; i < o.defenderWins.length; i++) {
+			o.defenderWins[i] = b.getDouble();
+		}
+		return o;
+	}
+
+	/**
+	 * Finds the bytes of the record for (a, d)
+	 * @param a
+	 * @param d
+	 */
+	private ByteBuffer record(int a, int d) {
+		if (!contains(a, d)) throw new RuntimeException("Battle not in table: " + a + " " + d);
+		long r = (long)(a - 2) * defenders + (d - 1);
+		ByteBuffer ix = bytes(indexOffset + 8 * r, 16);
+		long start = ix.getLong();
+		return bytes(start, (int)(ix.getLong() - start));
+	}
+
+	/**
+	 * Gets len bytes of the file from offset on, copying only if they span two mappings
+	 * @param offset
+	 * @param len
+	 */
+	private ByteBuffer bytes(long offset, int len) {
+		int s = (int)(offset / SEGMENT);
+		int p = (int)(offset % SEGMENT);
+		ByteBuffer seg = segments[s];
+		if (p + len <= seg.limit()) {
+			ByteBuffer b = seg.duplicate();
+			b.position(p);
+			b.limit(p + len);
+			return b.slice();
+		}
+		ByteBuffer b = ByteBuffer.allocate(len);
+		while (b.hasRemaining()) {
+			ByteBuffer src = segments[s++].duplicate();
+			src.position(p);
+			src.limit(Math.min(src.limit(), p + b.remaining()));
+			b.put(src);
+			p = 0;
+		}
+		b.flip();
+		return b;
+	}
+
+	/**
+	 * Reads one slot of an exact record
+	 * @param b
+	 * @return the probability, or null for an impossible outcome
+	 */
+	private static SmoothFraction readSlot(ByteBuffer b) {
+		int twos = b.getInt();
+		if (twos < 0)
+			return null;
+		int threes = b.getInt();
+		byte[] n = new byte[b.getInt()];
+		b.get(n);
+		return new SmoothFraction(new BigInteger(n), twos, threes);
+	}
+
+	/**
+	 * The number of records in the table
+	 */
+	private long records() {
+		return (long)Math.max(attackers - 1, 0) * defenders;
+	}
+
+	/**
+	 * Calculates every battle up to a attackers and d defenders and writes
+	 * them to a table file.  Battles are calculated and written a row at a time
+	 * without going through the cache, so memory use stays small.
+	 * @param file
+	 * @param a
+	 * @param d
+	 * @param kind Battle.EXACT or Battle.APPROXIMATE
+	 * @throws IOException
+	 */
+	public static void write(File file, int a, int d, int kind) throws IOException {
+		if (a < 1 || d < 1) throw new RuntimeException("Table must have at least 1 attacker and 1 defender");
+		long[] index = new long[(int)((long)(a - 1) * d + 1)];
+		CountingStream count = new CountingStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		DataOutputStream out = new DataOutputStream(count);
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(kind);
+			out.writeInt(a);
+			out.writeInt(d);
+			//index offset, filled in at the end
+			out.writeLong(0);
+			int r = 0;
+			if (kind == Battle.EXACT) {
+				OutcomeDistribution[][] window = new OutcomeDistribution[Battle.WINDOW][];
+				for (int i = 2; i <= a; i++) {
+					OutcomeDistribution[] row = Battle.advance(window, d);
+					for (int j = 1; j <= d; j++) {
+						row[j - 1] = Battle.calcPredict(i, j, window);
+						index[r++] = count.count;
+						writeRecord(out, row[j - 1]);
+					}
+				}
+			} else if (kind == Battle.APPROXIMATE) {
+				ApproximateOutcomeDistribution[][] window = new ApproximateOutcomeDistribution[Battle.WINDOW][];
+				for (int i = 2; i <= a; i++) {
+					ApproximateOutcomeDistribution[] row = ApproximateBattle.advance(window, d);
+					for (int j = 1; j <= d; j++) {
+						row[j - 1] = ApproximateBattle.calcPredict(i, j, window);
+						index[r++] = count.count;
+						writeRecord(out, row[j - 1]);
+					}
+				}
+			} else {
+				throw new RuntimeException("No such calculation mode:" + kind);
+			}
+			index[r] = count.count;
+			for (int i = 0; i < index.length; i++) {
+				out.writeLong(index[i]);
+			}
+		} finally {
+			out.close();
+		}
+		//now that the index has a place, point the header at it
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(HEADER - 8);
+			raf.writeLong(index[index.length - 1]);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Output stream that counts the bytes through it in a long,
+	 * unlike DataOutputStream.size()
+	 */
+	private static class CountingStream extends FilterOutputStream {
+		long count;
+
+		CountingStream(OutputStream out) {
+			super(out);
+		}
+
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	/**
+	 * Writes one exact record
+	 * @param out
+	 * @param o
+	 * @throws IOException
+	 */
+	private static void writeRecord(DataOutputStream out, OutcomeDistribution o) throws IOException {
+		out.writeInt(o.attackerSlots());
+		out.writeInt(o.defenderSlots());
+		for (int i = 0; i < o.attackerSlots(); i++) {
+			writeSlot(out, o.attackerWin(i));
+		}
+		for (int i = 0; i < o.defenderSlots(); i++) {
+			writeSlot(out, o.defenderWin(i));
+		}
+	}
+
+	/**
+	 * Writes one approximate record
+	 * @param out
+	 * @param o
+	 * @throws IOException
+	 */
+	private static void writeRecord(DataOutputStream out, ApproximateOutcomeDistribution o) throws IOException {
+		out.writeInt(o.attackerWins.length);
+		out.writeInt(o.defenderWins.length);
+		for (int i = 0; i < o.attackerWins.length; i++) {
+			out.writeDouble(o.attackerWins[i]);
+		}
+		for (int i = 0; i < o.defenderWins.length; i++) {
+			out.writeDouble(o.defenderWins[i]);
+		}
+	}
+
+	/**
+	 * Writes one slot of an exact record
+	 * @param out
+	 * @param f the probability, or null for an impossible outcome
+	 * @throws IOException
+	 */
+	private static void writeSlot(DataOutputStream out, SmoothFraction f) throws IOException {
+		if (f == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(f.getTwos());
+			out.writeInt(f.getThrees());
+			byte[] n = f.getNumerator().toByteArray();
+			out.writeInt(n.length);
+			out.write(n);
+		}
+	}
+
+	/**
+	 * Generates a table file
+	 * @param args file attackers defenders [exact|approximate]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: java prediction.BattleTable file attackers defenders [exact|approximate]");
+			System.exit(1);
+		}
+		int kind = (args.length > 3 && args[3].equals("approximate")) ? Battle.APPROXIMATE : Battle.EXACT;
+		File file = new File(args[0]);
+		write(file, Integer.parseInt(args[1]), Integer.parseInt(args[2]), kind);
+		System.out.println("Wrote " + file.length() + " bytes to " + file);
+	}
+}
@@ -0,0 +1,62 @@
+package prediction;
+import fraction.*;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a table from Grid as big-endian binary, for loading straight into
+ * an array:
+ * <pre>
+ *   int magic ("RRGV"), int version, int minA, int maxA, int minD, int maxD
+ *   then maxA - minA + 1 rows of maxD - minD + 1 doubles
+ * </pre>
+ * Exact probabilities are rounded to the nearest double.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class BinaryGridSink implements GridSink {
+	private static final int MAGIC = 0x52524756;
+	private static final int VERSION = 1;
+
+	private final DataOutputStream out;
+	private int minD;
+	private int maxD;
+
+	/**
+	 * Writes to out, which should be buffered; it is flushed but not closed at the end.
+	 * @param out
+	 */
+	public BinaryGridSink(OutputStream out) {
+		this.out = new DataOutputStream(out);
+	}
+
+	public void begin(int minA, int maxA, int minD, int maxD) throws IOException {
+		this.minD = minD;
+		this.maxD = maxD;
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(minA);
+		out.writeInt(maxA);
+		out.writeInt(minD);
+		out.writeInt(maxD);
+	}
+
+	public void row(int a, Fraction[] p) throws IOException {
+		for (int j = minD; j <= maxD; j++) {
+			out.writeDouble(p[j].toDouble());
+		}
+	}
+
+	public void row(int a, double[] p) throws IOException {
+		for (int j = minD; j <= maxD; j++) {
+			out.writeDouble(p[j]);
+		}
+	}
+
+	public void end() throws IOException {
+		out.flush();
+	}
+}
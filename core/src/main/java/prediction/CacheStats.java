@@ -0,0 +1,86 @@
+package prediction;
+
+/**
+ * A snapshot of how Battle's cache is doing: how often battles were found
+ * in it, how often they had to be calculated, how many were thrown out to
+ * stay within the memory budget, and how much it holds right now.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class CacheStats {
+	private long hits;
+	private long misses;
+	private long evictions;
+	private int cells;
+	private long weight;
+	private long budget;
+
+	/**
+	 * @param hits battles found already calculated
+	 * @param misses battles calculated (or read from a table) into the cache
+	 * @param evictions battles removed to stay within the budget
+	 * @param cells battles held now
+	 * @param weight estimated bytes held now
+	 * @param budget most bytes the cache may hold
+	 */
+	public CacheStats(long hits, long misses, long evictions, int cells, long weight, long budget) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.cells = cells;
+		this.weight = weight;
+		this.budget = budget;
+	}
+
+	/**
+	 * Return the number of battles found already calculated
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Return the number of battles calculated (or read from a table) into the cache
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Return the number of battles removed to stay within the budget
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Return the number of battles held now
+	 */
+	public int getCells() {
+		return cells;
+	}
+
+	/**
+	 * Return the estimated number of bytes held now
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Return the most bytes the cache may hold
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Represent the stats as a string
+	 */
+	public String toString() {
+		return "Cache: " + cells + " battles, " + (weight >> 10) + "KB of " + (budget >> 10) + "KB, "
+			+ hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+}
@@ -0,0 +1,65 @@
+package prediction;
+import fraction.*;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a table from Grid as comma separated values: a header line of
+ * "attackers" and the defender counts, then one line per attacker count
+ * starting with the count.  Each value is written as soon as it arrives.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class CsvGridSink implements GridSink {
+	private final Writer out;
+	private final int type;
+	private int minD;
+	private int maxD;
+
+	/**
+	 * Writes to out, with exact probabilities in the display type given
+	 * (Fraction.PRINT_FRACTION, PRINT_DECIMAL or PRINT_BOTH).  out should be
+	 * buffered; it is flushed but not closed at the end.
+	 * @param out
+	 * @param type
+	 */
+	public CsvGridSink(Writer out, int type) {
+		this.out = out;
+		this.type = type;
+	}
+
+	public void begin(int minA, int maxA, int minD, int maxD) throws IOException {
+		this.minD = minD;
+		this.maxD = maxD;
+		out.write("attackers");
+		for (int j = minD; j <= maxD; j++) {
+			out.write(',');
+			out.write(Integer.toString(j));
+		}
+		out.write('\n');
+	}
+
+	public void row(int a, Fraction[] p) throws IOException {
+		out.write(Integer.toString(a));
+		for (int j = minD; j <= maxD; j++) {
+			out.write(',');
+			out.write(p[j].toString(type));
+		}
+		out.write('\n');
+	}
+
+	public void row(int a, double[] p) throws IOException {
+		out.write(Integer.toString(a));
+		for (int j = minD; j <= maxD; j++) {
+			out.write(',');
+			out.write(Double.toString(p[j]));
+		}
+		out.write('\n');
+	}
+
+	public void end() throws IOException {
+		out.flush();
+	}
+}
@@ -0,0 +1,48 @@
+package prediction;
+import fraction.*;
+
+/**
+ * Class with static methods for finding the probabilities of specific outcomes of
+ * specific die rolls in Risk using standard rules.  The probabilities
+ * themselves are worked out by RuleSet.STANDARD; see RuleSet for other rules.
+ * 
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class DiceOutcome {
+	//these constants govern the standard dice tossing rules.  Modifying them
+	//will affect all needed changes project-wide.
+	public static final int DIE_SIDES = 6;
+	public static final int MAX_A_DICE = 3;
+	public static final int MAX_D_DICE = 2;
+	
+	/**
+	 * Calculates probability of the specified number of attacker wins based on the
+	 * number of dice rolled be each side.  Throws a runtime exception if the input
+	 * isn't ok.  Note: actual calculation is performed for every possible roll
+	 * when RuleSet.STANDARD is made.
+	 * 
+	 * @param adice
+	 * @param ddice
+	 * @param awin
+	 * @return Fraction representing the probability of the event
+	 */
+	public static Fraction probability(int adice, int ddice, int awin) {
+		return RuleSet.STANDARD.probability(adice, ddice, awin);
+	}
+	
+	/**
+	 * The same as probability(), but as a SmoothFraction.  Every probability
+	 * has a denominator dividing a power of DIE_SIDES, so this only works while
+	 * DIE_SIDES has no prime factors other than 2 and 3.
+	 * 
+	 * @param adice
+	 * @param ddice
+	 * @param awin
+	 * @return SmoothFraction representing the probability of the event
+	 */
+	public static SmoothFraction smoothProbability(int adice, int ddice, int awin) {
+		return RuleSet.STANDARD.smoothProbability(adice, ddice, awin);
+	}
+}
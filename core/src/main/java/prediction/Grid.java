@@ -0,0 +1,114 @@
+package prediction;
+import fraction.*;
+import java.io.IOException;
+
+/**
+ * Calculates whole tables of probabilities of victory in one pass.  The
+ * probability for a battle only depends on battles with fewer armies, so
+ * going row by row (attackers 2, 3, ...) every battle in the rectangle is
+ * calculated once from the rows before it, and each finished row is handed
+ * to a GridSink straight away.  Only the few rows the calculation still
+ * depends on are kept in memory, however big the table.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class Grid {
+	/**
+	 * Calculates the probability of the attacker winning with at least n
+	 * armies remaining for every battle from minA to maxA attackers and minD
+	 * to maxD defenders with the standard rules.  See the RuleSet version.
+	 *
+	 * @param minA
+	 * @param maxA
+	 * @param minD
+	 * @param maxD
+	 * @param n
+	 * @param mode Battle.EXACT or Battle.APPROXIMATE
+	 * @param sink
+	 * @throws IOException if the sink fails
+	 */
+	public static void victory(int minA, int maxA, int minD, int maxD, int n, int mode, GridSink sink) throws IOException {
+		victory(RuleSet.STANDARD, minA, maxA, minD, maxD, n, mode, sink);
+	}
+
+	/**
+	 * Calculates the probability of the attacker winning with at least n
+	 * armies remaining for every battle from minA to maxA attackers and minD
+	 * to maxD defenders, exactly or approximately as the mode (Battle.EXACT
+	 * or Battle.APPROXIMATE) says, and streams the rows to sink in order of
+	 * attackers.  Exact rows are in lowest terms.
+	 *
+	 * @param r
+	 * @param minA
+	 * @param maxA
+	 * @param minD
+	 * @param maxD
+	 * @param n
+	 * @param mode
+	 * @param sink
+	 * @throws IOException if the sink fails
+	 * @throws RuntimeException if the range or mode is illegal
+	 */
+	public static void victory(RuleSet r, int minA, int maxA, int minD, int maxD, int n, int mode, GridSink sink) throws IOException {
+		if (minA < 2 || minD < 1 || maxA < minA || maxD < minD)
+			throw new RuntimeException("Illegal grid: attackers " + minA + "-" + maxA + ", defenders " + minD + "-" + maxD);
+		if (mode != Battle.EXACT && mode != Battle.APPROXIMATE)
+			throw new RuntimeException("No such calculation mode:" + mode);
+		sink.begin(minA, maxA, minD, maxD);
+		if (mode == Battle.EXACT) {
+			exact(r, minA, maxA, minD, maxD, n, sink);
+		} else {
+			approximate(r, minA, maxA, minD, maxD, n, sink);
+		}
+		sink.end();
+	}
+
+	/**
+	 * The exact pass, keeping a ring of rows as Battle.probVictory() does
+	 */
+	private static void exact(RuleSet r, int minA, int maxA, int minD, int maxD, int n, GridSink sink) throws IOException {
+		//ring of rows: window[k] holds the row for k fewer attackers, indexed by defenders - 1
+		SmoothFraction[][] window = new SmoothFraction[r.window()][];
+		Fraction[] out = new Fraction[maxD + 1];
+		for (int i = 2; i <= maxA; i++) {
+			SmoothFraction[] row = window[window.length - 1];
+			for (int k = window.length - 1; k > 0; k--) {
+				window[k] = window[k - 1];
+			}
+			if (row == null) {
+				row = new SmoothFraction[maxD];
+			}
+			window[0] = row;
+			for (int j = 1; j <= maxD; j++) {
+				row[j - 1] = Battle.calcVictory(r, i, j, n, window);
+			}
+			if (i >= minA) {
+				for (int j = minD; j <= maxD; j++) {
+					SmoothFraction f = new SmoothFraction(row[j - 1]);
+					f.reduce();
+					out[j] = f.toFraction();
+				}
+				sink.row(i, out);
+			}
+		}
+	}
+
+	/**
+	 * The approximate pass, filling rows as ApproximateBattle.victoryTable() does
+	 */
+	private static void approximate(RuleSet r, int minA, int maxA, int minD, int maxD, int n, GridSink sink) throws IOException {
+		//ring of rows indexed by defenders, row i at i % length
+		double[][] window = new double[r.window()][maxD + 1];
+		double[][] rows = new double[window.length][];
+		for (int i = 2; i <= maxA; i++) {
+			for (int k = 0; k < rows.length; k++) {
+				rows[k] = window[(i + window.length - k) % window.length];
+			}
+			ApproximateBattle.fillVictoryRow(r, i, maxD, n, rows);
+			if (i >= minA)
+				sink.row(i, rows[0]);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package prediction;
+import fraction.*;
+import java.io.IOException;
+
+/**
+ * Receives a table of probabilities from Grid one row (attacker count) at a
+ * time, as each row is finished.  The arrays passed to row() are indexed by
+ * defenders and only hold the requested columns; they are reused for the
+ * next row, so a sink must write them out or copy them before returning.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public interface GridSink {
+	/**
+	 * Called once before any rows, with the range of the table
+	 * @param minA
+	 * @param maxA
+	 * @param minD
+	 * @param maxD
+	 * @throws IOException
+	 */
+	void begin(int minA, int maxA, int minD, int maxD) throws IOException;
+
+	/**
+	 * Receives an exactly calculated row: p[j] is the probability for a
+	 * attackers and j defenders, minD <= j <= maxD.
+	 * @param a
+	 * @param p
+	 * @throws IOException
+	 */
+	void row(int a, Fraction[] p) throws IOException;
+
+	/**
+	 * Receives an approximately calculated row: p[j] is the probability for a
+	 * attackers and j defenders, minD <= j <= maxD.
+	 * @param a
+	 * @param p
+	 * @throws IOException
+	 */
+	void row(int a, double[] p) throws IOException;
+
+	/**
+	 * Called once after the last row
+	 * @throws IOException
+	 */
+	void end() throws IOException;
+}
@@ -0,0 +1,253 @@
+package prediction;
+import fraction.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timers for the prediction engine: how many queries there
+ * were and how long they took, how many battles were calculated, how many
+ * outcomes they had, how often the dice were looked up, and (from
+ * FractionMetrics) how much arithmetic was done on how big numbers.  The
+ * cache counts its own hits and misses (see CacheStats), which are shown
+ * here too.
+ *
+ * Nothing is counted unless the program runs with -Driskrisk.metrics=true.
+ * Every place that counts checks ENABLED first, and since it is a constant
+ * the check and the counting disappear from the compiled code when it is
+ * false.  The counters are LongAdders, so threads calculating at the same
+ * time do not fight over them.
+ *
+ * register() makes the counts visible over JMX as riskrisk:type=Metrics;
+ * dump() gives them as text.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class Metrics implements MetricsMBean {
+	/** true if the program was started with -Driskrisk.metrics=true */
+	public static final boolean ENABLED = FractionMetrics.ENABLED;
+	/** name of the MBean */
+	public static final String NAME = "riskrisk:type=Metrics";
+	private static final Metrics instance = new Metrics();
+	private static boolean registered;
+
+	static final LongAdder predictions = new LongAdder();
+	static final LongAdder victories = new LongAdder();
+	static final LongAdder cells = new LongAdder();
+	static final LongAdder diceLookups = new LongAdder();
+	private static final LongAdder queryNanos = new LongAdder();
+	//queryTimes[i] counts queries of 2^(i - 1) to 2^i - 1 microseconds
+	private static final LongAdder[] queryTimes = adders();
+	//outcomeCounts[i] counts predictions with 2^(i - 1) to 2^i - 1 outcomes
+	private static final LongAdder[] outcomeCounts = adders();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Makes the metrics visible over JMX as NAME, if they are not already.
+	 * @throws RuntimeException if the platform MBean server refuses them
+	 */
+	public static synchronized void register() {
+		if (registered)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(NAME));
+			registered = true;
+		} catch (JMException e) {
+			throw new RuntimeException("Cannot register metrics: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Counts a finished prediction
+	 * @param start System.nanoTime() when it started
+	 * @param o what it predicted, null if nothing
+	 */
+	static void predicted(long start, OutcomeDistribution o) {
+		predictions.increment();
+		timed(start);
+		if (o != null)
+			bucket(outcomeCounts, o.count()).increment();
+	}
+
+	/**
+	 * Counts a finished probability of victory
+	 * @param start System.nanoTime() when it started
+	 */
+	static void victory(long start) {
+		victories.increment();
+		timed(start);
+	}
+
+	/**
+	 * Everything as text, one count per line, histograms leaving out empty buckets.
+	 */
+	public static String text() {
+		StringBuilder b = new StringBuilder();
+		b.append("Metrics ").append(ENABLED ? "enabled" : "disabled (run with -Driskrisk.metrics=true to count)").append('\n');
+		b.append("Predictions: ").append(predictions.sum()).append('\n');
+		b.append("Probabilities of victory: ").append(victories.sum()).append('\n');
+		b.append("Mean query time: ").append(instance.getMeanQueryMillis()).append(" ms\n");
+		histogram(b, "Query times (microseconds)", instance.getQueryTimes());
+		histogram(b, "Outcomes per prediction", instance.getOutcomeCounts());
+		b.append("Battles calculated: ").append(cells.sum()).append('\n');
+		b.append("Dice lookups: ").append(diceLookups.sum()).append('\n');
+		b.append("Fraction adds: ").append(instance.getFractionAdds()).append(", multiplies: ").append(instance.getFractionMultiplies()).append('\n');
+		b.append("SmoothFraction adds: ").append(instance.getSmoothFractionAdds()).append(", multiplies: ").append(instance.getSmoothFractionMultiplies()).append('\n');
+		histogram(b, "Result bit lengths", instance.getBitLengths());
+		b.append(Battle.getCacheStats());
+		return b.toString();
+	}
+
+	/**
+	 * Sets every count back to zero.  The cache keeps its own counts.
+	 */
+	public static void clear() {
+		predictions.reset();
+		victories.reset();
+		cells.reset();
+		diceLookups.reset();
+		queryNanos.reset();
+		for (int i = 0; i < queryTimes.length; i++) {
+			queryTimes[i].reset();
+			outcomeCounts[i].reset();
+		}
+		FractionMetrics.reset();
+	}
+
+	public boolean isEnabled() {
+		return ENABLED;
+	}
+
+	public long getPredictions() {
+		return predictions.sum();
+	}
+
+	public long getVictories() {
+		return victories.sum();
+	}
+
+	public double getMeanQueryMillis() {
+		long n = predictions.sum() + victories.sum();
+		return (n == 0) ? 0 : queryNanos.sum() / 1e6 / n;
+	}
+
+	public long[] getQueryTimes() {
+		return sums(queryTimes);
+	}
+
+	public long[] getOutcomeCounts() {
+		return sums(outcomeCounts);
+	}
+
+	public long getCellsComputed() {
+		return cells.sum();
+	}
+
+	public long getDiceLookups() {
+		return diceLookups.sum();
+	}
+
+	public long getFractionAdds() {
+		return FractionMetrics.getCount(FractionMetrics.FRACTION_ADD);
+	}
+
+	public long getFractionMultiplies() {
+		return FractionMetrics.getCount(FractionMetrics.FRACTION_MULTIPLY);
+	}
+
+	public long getSmoothFractionAdds() {
+		return FractionMetrics.getCount(FractionMetrics.SMOOTH_ADD);
+	}
+
+	public long getSmoothFractionMultiplies() {
+		return FractionMetrics.getCount(FractionMetrics.SMOOTH_MULTIPLY);
+	}
+
+	public long[] getBitLengths() {
+		return FractionMetrics.getBitLengths();
+	}
+
+	public long getCacheHits() {
+		return Battle.getCacheStats().getHits();
+	}
+
+	public long getCacheMisses() {
+		return Battle.getCacheStats().getMisses();
+	}
+
+	public long getCacheEvictions() {
+		return Battle.getCacheStats().getEvictions();
+	}
+
+	public long getCacheBytes() {
+		return Battle.getCacheStats().getWeight();
+	}
+
+	public String dump() {
+		return text();
+	}
+
+	public void reset() {
+		clear();
+	}
+
+	/**
+	 * Adds a query's time to the total and the histogram
+	 * @param start
+	 */
+	private static void timed(long start) {
+		long t = System.nanoTime() - start;
+		queryNanos.add(t);
+		bucket(queryTimes, t / 1000).increment();
+	}
+
+	/**
+	 * The histogram bucket for v: bucket i holds 2^(i - 1) to 2^i - 1
+	 * @param h
+	 * @param v
+	 */
+	private static LongAdder bucket(LongAdder[] h, long v) {
+		return h[Math.min(Long.SIZE - Long.numberOfLeadingZeros(Math.max(v, 0)), h.length - 1)];
+	}
+
+	/**
+	 * Appends a histogram's non-empty buckets, one per line
+	 * @param b
+	 * @param title
+	 * @param h
+	 */
+	private static void histogram(StringBuilder b, String title, long[] h) {
+		b.append(title).append(':').append('\n');
+		for (int i = 0; i < h.length; i++) {
+			if (h[i] == 0)
+				continue;
+			long low = (i == 0) ? 0 : 1L << (i - 1);
+			long high = (i == 0) ? 0 : (1L << i) - 1;
+			b.append('\t').append(low);
+			if (high != low)
+				b.append('-').append(high);
+			b.append(": ").append(h[i]).append('\n');
+		}
+	}
+
+	private static LongAdder[] adders() {
+		LongAdder[] a = new LongAdder[FractionMetrics.BUCKETS];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = new LongAdder();
+		}
+		return a;
+	}
+
+	private static long[] sums(LongAdder[] a) {
+		long[] s = new long[a.length];
+		for (int i = 0; i < a.length; i++) {
+			s[i] = a[i].sum();
+		}
+		return s;
+	}
+}
@@ -0,0 +1,51 @@
+package prediction;
+
+/**
+ * What Metrics shows over JMX, for jconsole and the like.  Histograms are
+ * arrays whose element i counts values from 2^(i - 1) up to 2^i - 1, and
+ * element 0 zeros.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public interface MetricsMBean {
+	/** true if anything is being counted (-Driskrisk.metrics=true) */
+	boolean isEnabled();
+	/** calls to Battle.predict() and predictDistribution() */
+	long getPredictions();
+	/** calls to Battle.probVictory() */
+	long getVictories();
+	/** mean time a prediction or probability of victory took, in milliseconds */
+	double getMeanQueryMillis();
+	/** histogram of query times in microseconds */
+	long[] getQueryTimes();
+	/** histogram of the number of outcomes predictions had */
+	long[] getOutcomeCounts();
+	/** single battles calculated by the exact calculation */
+	long getCellsComputed();
+	/** dice probabilities looked up */
+	long getDiceLookups();
+	/** Fraction.add() calls */
+	long getFractionAdds();
+	/** Fraction.multiply() calls */
+	long getFractionMultiplies();
+	/** SmoothFraction.add() calls */
+	long getSmoothFractionAdds();
+	/** SmoothFraction.multiply() calls */
+	long getSmoothFractionMultiplies();
+	/** histogram of the bit lengths of arithmetic results */
+	long[] getBitLengths();
+	/** battles found in the cache */
+	long getCacheHits();
+	/** battles calculated into the cache */
+	long getCacheMisses();
+	/** battles thrown out of the cache */
+	long getCacheEvictions();
+	/** estimated bytes the cache holds */
+	long getCacheBytes();
+	/** everything as text */
+	String dump();
+	/** sets every count back to zero (the cache keeps its own) */
+	void reset();
+}
@@ -0,0 +1,214 @@
+package prediction;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates battles by rolling them out, for battles too big to calculate
+ * or rules too big to count.  Each simulated battle rolls real dice under
+ * the RuleSet, exactly as the game is played: both sides roll as many dice
+ * as they may, the highest are compared pairwise, and ties go as the rules
+ * say.  The answer is a SimulatedOutcomeDistribution, with confidence
+ * intervals on every estimate.
+ *
+ * The battles are shared out over a fork/join pool in chunks of CHUNK.
+ * Every chunk gets its own SplittableRandom, split off the one before it,
+ * so the numbers are independent across threads and a simulation with the
+ * same seed always gives the same answer, however many threads run it.
+ * A chunk allocates its dice and tallies once; rolling allocates nothing.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class MonteCarloBattle {
+	/** standard deviations a 95% confidence interval covers */
+	public static final double Z95 = 1.959963984540054;
+	/** battles simulated by one task */
+	static final int CHUNK = 1 << 12;
+	/** battles simulated before the first check of the precision */
+	private static final long FIRST_ROUND = 1 << 14;
+
+	/**
+	 * Simulates trials battles of a attackers against d defenders, under
+	 * the standard rules, on every core of the common fork/join pool.
+	 * Returns null if the arguments are illegal.
+	 *
+	 * @param a
+	 * @param d
+	 * @param trials
+	 * @return SimulatedOutcomeDistribution
+	 */
+	public static SimulatedOutcomeDistribution simulate(int a, int d, long trials) {
+		return simulate(RuleSet.STANDARD, a, d, trials, System.nanoTime(), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Simulates trials battles of a attackers against d defenders.  The
+	 * same seed always gives the same answer.  Returns null if the
+	 * arguments are illegal.
+	 *
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param trials
+	 * @param seed
+	 * @param pool
+	 * @return SimulatedOutcomeDistribution
+	 */
+	public static SimulatedOutcomeDistribution simulate(RuleSet r, int a, int d, long trials, long seed, ForkJoinPool pool) {
+		if (a <= 1 || d <= 0 || trials < 1)
+			return null;
+		return pool.invoke(new Simulation(r, a, d, trials, new SplittableRandom(seed)));
+	}
+
+	/**
+	 * Simulates battles of a attackers against d defenders, under the
+	 * standard rules, until the 95% confidence interval of winning with at
+	 * least n armies left is no wider than precision either side of the
+	 * estimate.  Returns null if the arguments are illegal.
+	 *
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param precision
+	 * @return SimulatedOutcomeDistribution
+	 */
+	public static SimulatedOutcomeDistribution simulate(int a, int d, int n, double precision) {
+		return simulate(RuleSet.STANDARD, a, d, n, precision, Long.MAX_VALUE, System.nanoTime(), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Simulates battles in rounds, each as big as all the ones before it,
+	 * until the 95% confidence interval of winning with at least n armies
+	 * left is no wider than precision either side of the estimate, or
+	 * maxTrials battles have been simulated.  The same seed always gives
+	 * the same answer.  Returns null if the arguments are illegal.
+	 *
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param n
+	 * @param precision
+	 * @param maxTrials
+	 * @param seed
+	 * @param pool
+	 * @return SimulatedOutcomeDistribution
+	 */
+	public static SimulatedOutcomeDistribution simulate(RuleSet r, int a, int d, int n, double precision, long maxTrials, long seed, ForkJoinPool pool) {
+		if (a <= 1 || d <= 0 || maxTrials < 1 || !(precision > 0))
+			return null;
+		SplittableRandom random = new SplittableRandom(seed);
+		SimulatedOutcomeDistribution o = new SimulatedOutcomeDistribution(a, d);
+		long round = Math.min(FIRST_ROUND, maxTrials);
+		while (true) {
+			o.merge(pool.invoke(new Simulation(r, a, d, round, random.split())));
+			double[] i = o.probVictoryInterval(n, Z95);
+			if (o.trials >= maxTrials || (i[1] - i[0]) / 2 <= precision)
+				return o;
+			round = Math.min(o.trials, maxTrials - o.trials);
+		}
+	}
+
+	/**
+	 * Simulates some number of battles, splitting them in half until each
+	 * half is at most CHUNK battles.
+	 */
+	private static class Simulation extends RecursiveTask<SimulatedOutcomeDistribution> {
+		private static final long serialVersionUID = 1L;
+		private final RuleSet r;
+		private final int a;
+		private final int d;
+		private final long trials;
+		private final SplittableRandom random;
+
+		Simulation(RuleSet r, int a, int d, long trials, SplittableRandom random) {
+			this.r = r;
+			this.a = a;
+			this.d = d;
+			this.trials = trials;
+			this.random = random;
+		}
+
+		protected SimulatedOutcomeDistribution compute() {
+			if (trials <= CHUNK)
+				return run(r, a, d, trials, random);
+			long half = trials / 2;
+			//split before forking, so each half's numbers do not depend on scheduling
+			Simulation right = new Simulation(r, a, d, trials - half, random.split());
+			right.fork();
+			SimulatedOutcomeDistribution o = new Simulation(r, a, d, half, random).compute();
+			o.merge(right.join());
+			return o;
+		}
+	}
+
+	/**
+	 * Simulates trials battles on this thread
+	 * @param r
+	 * @param a
+	 * @param d
+	 * @param trials
+	 * @param random
+	 */
+	static SimulatedOutcomeDistribution run(RuleSet r, int a, int d, long trials, SplittableRandom random) {
+		SimulatedOutcomeDistribution o = new SimulatedOutcomeDistribution(a, d);
+		int aSides = r.getAttackerSides();
+		int dSides = r.getDefenderSides();
+		boolean ties = r.attackerWinsTies();
+		//the highest dice of a roll, highest first
+		int[] high = new int[r.window()];
+		int[] low = new int[r.window()];
+		for (long t = 0; t < trials; t++) {
+			int x = a;
+			int y = d;
+			while (x > 1 && y > 0) {
+				int adice = r.attackerDice(x);
+				int ddice = r.defenderDice(y);
+				int k = Math.min(adice, ddice);
+				roll(random, aSides, adice, k, high);
+				roll(random, dSides, ddice, k, low);
+				int wins = 0;
+				for (int i = 0; i < k; i++) {
+					if (high[i] > low[i] || (ties && high[i] == low[i]))
+						wins++;
+				}
+				x -= k - wins;
+				y -= wins;
+			}
+			if (y == 0)
+				o.attackerWins[x]++;
+			else
+				o.defenderWins[y]++;
+		}
+		o.trials = trials;
+		return o;
+	}
+
+	/**
+	 * Rolls n dice of the given sides, keeping the k highest in dice, highest first
+	 * @param random
+	 * @param sides
+	 * @param n
+	 * @param k
+	 * @param dice
+	 */
+	private static void roll(SplittableRandom random, int sides, int n, int k, int[] dice) {
+		int m = 0;
+		for (int die = 0; die < n; die++) {
+			int v = random.nextInt(sides) + 1;
+			int i = m;
+			if (m < k)
+				m++;
+			else if (v <= dice[k - 1])
+				continue;
+			else
+				i = k - 1;
+			while (i > 0 && dice[i - 1] < v) {
+				dice[i] = dice[i - 1];
+				i--;
+			}
+			dice[i] = v;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package prediction;
+
+/**
+ * What an attacker is trying to achieve, for AttackPolicy: how much each
+ * way a battle can end is worth.  A battle ends either in a conquest, with
+ * some attackers left, or when the attacker stops, with attackers and
+ * defenders both left (having one attacker left always stops the battle).
+ * AttackPolicy finds the play that makes the expected worth highest.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public abstract class Objective {
+	/**
+	 * The worth of conquering the territory with a attackers left.
+	 * @param a
+	 */
+	public abstract double conquest(int a);
+
+	/**
+	 * The worth of stopping with a attackers and d defenders left.
+	 * @param a
+	 * @param d
+	 */
+	public abstract double stop(int a, int d);
+
+	/**
+	 * Conquering with at least n attackers left is worth 1, anything else 0,
+	 * so the expected worth is the probability of such a victory.
+	 * @param n
+	 */
+	public static Objective victory(final int n) {
+		return new Objective() {
+			public double conquest(int a) {
+				return (a >= n) ? 1 : 0;
+			}
+
+			public double stop(int a, int d) {
+				return 0;
+			}
+
+			public String toString() {
+				return "probability of conquering with at least " + n + " armies left";
+			}
+		};
+	}
+
+	/**
+	 * Every attacker left is worth 1, and conquering is worth bonus more,
+	 * so the expected worth is the attackers expected to be left plus bonus
+	 * times the probability of conquering.
+	 * @param bonus what the territory is worth, in armies
+	 */
+	public static Objective survivors(final double bonus) {
+		return new Objective() {
+			public double conquest(int a) {
+				return a + bonus;
+			}
+
+			public double stop(int a, int d) {
+				return a;
+			}
+
+			public String toString() {
+				return "expected armies left, a conquest counting " + bonus + " more";
+			}
+		};
+	}
+
+	/**
+	 * Every attacker left is worth 1 and every defender left -1, so the
+	 * expected worth is how many armies ahead the attacker expects to come out.
+	 */
+	public static Objective armyDifference() {
+		return new Objective() {
+			public double conquest(int a) {
+				return a;
+			}
+
+			public double stop(int a, int d) {
+				return a - d;
+			}
+
+			public String toString() {
+				return "expected attackers left less defenders left";
+			}
+		};
+	}
+}
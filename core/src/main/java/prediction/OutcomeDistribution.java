@@ -0,0 +1,345 @@
+package prediction;
+import fraction.*;
+
+/**
+ * Represents all the final outcomes of a battle and their probabilities.  A
+ * battle can only end with the defender wiped out (a, 0) or the attacker down
+ * to one army (1, d), so instead of a list the probabilities are kept in two
+ * arrays indexed by the surviving armies.  Merging an outcome is a single
+ * array access rather than a search.  Probabilities are held as
+ * SmoothFractions and handed out as Fractions.
+ *
+ * A battle fought until the attacker is down to a threshold of k armies
+ * (see Battle.predictDistribution(RuleSet, int, int, int)) ends at (a, 0)
+ * or at k or a few less attackers, since the last roll may cost more than
+ * one army.  Those are kept in one row per attacker count, k first.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class OutcomeDistribution {
+	//attackerWins[a] is the probability of (a, 0), null if impossible
+	private SmoothFraction[] attackerWins;
+	//stops[j][d] is the probability of (threshold - j, d), null if impossible
+	private SmoothFraction[][] stops;
+	//the most attackers the attacker stops with, 1 for a fight to the death
+	private int threshold;
+	//keep track of number of possible outcomes
+	private int count;
+
+	//rough heap sizes in bytes, for weight()
+	private static final int OBJECT_BYTES = 16;
+	private static final int REFERENCE_BYTES = 8;
+	private static final int SMOOTH_FRACTION_BYTES = 24;
+	private static final int BIG_INTEGER_BYTES = 56;
+
+	/**
+	 * Produces an empty distribution with room for the outcomes of a battle
+	 * starting with a attackers and d defenders.
+	 * @param a
+	 * @param d
+	 */
+	public OutcomeDistribution(int a, int d) {
+		this(a, d, 1, 1);
+	}
+
+	/**
+	 * Produces an empty distribution with room for the outcomes of a battle
+	 * starting with a attackers and d defenders, fought until the attacker
+	 * is down to threshold armies.
+	 * @param a
+	 * @param d
+	 * @param threshold
+	 * @param rows number of attacker counts the attacker may stop with
+	 */
+	OutcomeDistribution(int a, int d, int threshold, int rows) {
+		attackerWins = new SmoothFraction[Math.max(a, 1) + 1];
+		stops = new SmoothFraction[rows][Math.max(d, 0) + 1];
+		this.threshold = threshold;
+		count = 0;
+	}
+
+	/**
+	 * Add the probability f of the final outcome (a, d), combining it
+	 * with the probability already there.  The fraction is kept, not copied.
+	 * @param a
+	 * @param d
+	 * @param f
+	 * @throws RuntimeException when not a valid completed battle
+	 */
+	void merge(int a, int d, SmoothFraction f) {
+		if (!BattleOutcome.isFinal(a, d, threshold) || (d > 0 && threshold - a >= stops.length))
+			throw new RuntimeException("Not a valid final result.");
+		if (d == 0) {
+			attackerWins[a] = mergeSlot(attackerWins[a], f);
+		} else {
+			stops[threshold - a][d] = mergeSlot(stops[threshold - a][d], f);
+		}
+	}
+
+	/**
+	 * Add a copy of the BattleOutcome's probability to the matching outcome.
+	 * @param b
+	 * @throws RuntimeException if the probability's denominator is not of the form 2^i * 3^j
+	 */
+	void merge(BattleOutcome b) {
+		merge(b.getAttackers(), b.getDefenders(), new SmoothFraction(b.probability));
+	}
+
+	/**
+	 * Add every outcome of o, with its probability multiplied by f, into
+	 * this distribution.  Does not modify o.
+	 * @param o
+	 * @param f
+	 */
+	void mergeMultiply(OutcomeDistribution o, SmoothFraction f) {
+		for (int i = 0; i < o.attackerWins.length; i++) {
+			if (o.attackerWins[i] != null)
+				attackerWins[i] = mergeSlot(attackerWins[i], multiply(o.attackerWins[i], f));
+		}
+		for (int j = 0; j < o.stops.length; j++) {
+			SmoothFraction[] row = stops[j];
+			for (int i = 0; i < o.stops[j].length; i++) {
+				if (o.stops[j][i] != null)
+					row[i] = mergeSlot(row[i], multiply(o.stops[j][i], f));
+			}
+		}
+	}
+
+	/**
+	 * Fills an empty slot or adds to an existing one, counting new outcomes.
+	 * @param slot
+	 * @param f
+	 * @return the new contents of the slot
+	 */
+	private SmoothFraction mergeSlot(SmoothFraction slot, SmoothFraction f) {
+		if (slot == null) {
+			count++;
+			return f;
+		}
+		slot.add(f);
+		return slot;
+	}
+
+	/**
+	 * Copies p and multiplies f into the copy
+	 * @param p
+	 * @param f
+	 */
+	private static SmoothFraction multiply(SmoothFraction p, SmoothFraction f) {
+		SmoothFraction t = new SmoothFraction(p);
+		t.multiply(f);
+		return t;
+	}
+
+	/**
+	 * Generate a new distribution with the same outcomes as this,
+	 * but with all probabilities multiplied by f
+	 * @param f
+	 */
+	public OutcomeDistribution cloneMultiply(SmoothFraction f) {
+		OutcomeDistribution o = new OutcomeDistribution(attackerWins.length - 1, stops[0].length - 1, threshold, stops.length);
+		o.mergeMultiply(this, f);
+		return o;
+	}
+
+	/**
+	 * The same outcomes with shift more attackers in every one of them, for a
+	 * threshold shift higher.  The fractions are shared, not copied, so
+	 * neither distribution may be changed afterwards.
+	 * @param shift
+	 */
+	OutcomeDistribution translate(int shift) {
+		OutcomeDistribution o = new OutcomeDistribution(attackerWins.length - 1 + shift, 0, threshold + shift, 0);
+		System.arraycopy(attackerWins, 0, o.attackerWins, shift, attackerWins.length);
+		o.stops = stops;
+		o.count = count;
+		return o;
+	}
+
+	/**
+	 * Return the most attackers the attacker stops with: 1 for a fight to
+	 * the death, otherwise the retreat threshold.
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Return the number of possible outcomes.
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Estimates how many bytes of heap the distribution holds: the arrays,
+	 * and for each possible outcome a SmoothFraction and its numerator's
+	 * magnitude.  Used to keep BattleCache within its budget.
+	 */
+	long weight() {
+		long w = OBJECT_BYTES + (2 + stops.length) * OBJECT_BYTES + REFERENCE_BYTES * (attackerWins.length + stops.length);
+		w += slotWeight(attackerWins);
+		for (int j = 0; j < stops.length; j++) {
+			w += REFERENCE_BYTES * stops[j].length + slotWeight(stops[j]);
+		}
+		return w;
+	}
+
+	/**
+	 * The estimated heap size of the fractions in a slot array
+	 * @param slots
+	 */
+	private static long slotWeight(SmoothFraction[] slots) {
+		long w = 0;
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] != null)
+				w += SMOOTH_FRACTION_BYTES + BIG_INTEGER_BYTES + (slots[i].getNumerator().bitLength() >>> 3);
+		}
+		return w;
+	}
+
+	/**
+	 * The number of attacker win slots, one more than the most attackers
+	 */
+	int attackerSlots() {
+		return attackerWins.length;
+	}
+
+	/**
+	 * The number of defender win slots, one more than the most defenders
+	 */
+	int defenderSlots() {
+		return stops[0].length;
+	}
+
+	/**
+	 * The probability of (a, 0) as stored, null if impossible.  Not a copy.
+	 * @param a
+	 */
+	SmoothFraction attackerWin(int a) {
+		return attackerWins[a];
+	}
+
+	/**
+	 * The probability of (threshold, d) as stored, null if impossible.  Not a copy.
+	 * @param d
+	 */
+	SmoothFraction defenderWin(int d) {
+		return stops[0][d];
+	}
+
+	/**
+	 * Gets the probability of the final outcome (a, d), or 0 if it
+	 * cannot happen.
+	 * @param a
+	 * @param d
+	 */
+	public Fraction probability(int a, int d) {
+		SmoothFraction f = null;
+		if (BattleOutcome.isFinal(a, d, threshold)) {
+			if (d == 0) {
+				if (a < attackerWins.length)
+					f = attackerWins[a];
+			} else {
+				if (threshold - a < stops.length && d < stops[0].length)
+					f = stops[threshold - a][d];
+			}
+		}
+		return (f == null) ? new Fraction(0, 1) : f.toFraction();
+	}
+
+	/**
+	 * Determines the probability of successful invasion with the given number of armies left
+	 */
+	public Fraction probVictory(int n) {
+		SmoothFraction f = new SmoothFraction(0, 0, 0);
+		for (int i = Math.max(n, 0); i < attackerWins.length; i++) {
+			if (attackerWins[i] != null)
+				f.add(attackerWins[i]);
+		}
+		f.reduce();
+		return f.toFraction();
+	}
+
+	/**
+	 * Summarizes the outcomes: expected survivors, variances and quantiles
+	 * (see OutcomeSummary).  The summary shares the probabilities, so this
+	 * distribution may not be changed afterwards.
+	 */
+	public OutcomeSummary summary() {
+		int[] a = new int[count];
+		int[] d = new int[count];
+		SmoothFraction[] f = new SmoothFraction[count];
+		int k = 0;
+		for (int i = stops[0].length - 1; i > 0; i--) {
+			for (int j = stops.length - 1; j >= 0; j--) {
+				if (stops[j][i] != null) {
+					a[k] = threshold - j;
+					d[k] = i;
+					f[k++] = stops[j][i];
+				}
+			}
+		}
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] != null) {
+				a[k] = i;
+				d[k] = 0;
+				f[k++] = attackerWins[i];
+			}
+		}
+		return new OutcomeSummary(a, d, f, threshold);
+	}
+
+	/**
+	 * Builds a BattleOutcomeSet holding copies of the outcomes, the defender's
+	 * best outcomes first and the attacker's best outcomes last.
+	 */
+	public BattleOutcomeSet toOutcomeSet() {
+		BattleOutcomeSet b = new BattleOutcomeSet();
+		for (int i = stops[0].length - 1; i > 0; i--) {
+			for (int j = stops.length - 1; j >= 0; j--) {
+				if (stops[j][i] != null)
+					b.append(new BattleOutcome(threshold - j, i, stops[j][i].toFraction(), threshold));
+			}
+		}
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] != null)
+				b.append(new BattleOutcome(i, 0, attackerWins[i]));
+		}
+		return b;
+	}
+
+	/**
+	 * Represent the distribution as a string, in the same order and format as
+	 * BattleOutcomeSet.
+	 */
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		for (int i = stops[0].length - 1; i > 0; i--) {
+			for (int j = stops.length - 1; j >= 0; j--) {
+				if (stops[j][i] != null)
+					append(b, threshold - j, i, stops[j][i]);
+			}
+		}
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] != null)
+				append(b, i, 0, attackerWins[i]);
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Appends one outcome line, separating it from the previous one
+	 * @param b
+	 * @param a
+	 * @param d
+	 * @param f
+	 */
+	private static void append(StringBuilder b, int a, int d, SmoothFraction f) {
+		if (b.length() > 0)
+			b.append('\n');
+		b.append("Attacker: ").append(a).append(" Defender: ").append(d).append(" Probability: ").append(f);
+	}
+}
@@ -0,0 +1,187 @@
+package prediction;
+import fraction.*;
+
+/**
+ * Summary statistics of the outcomes of one battle: expected survivors on
+ * each side, their variances, and quantiles.  The outcomes are laid out once
+ * in order from the defender's best to the attacker's best (the order of
+ * OutcomeDistribution.toOutcomeSet()) with a running total of their
+ * probabilities, so afterwards the moments are read straight off and a
+ * quantile is a binary search, with no Fraction arithmetic.  The statistics
+ * are doubles; the outcomes handed back by the quantiles keep their exact
+ * probabilities.
+ *
+ * Made by OutcomeDistribution.summary().
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class OutcomeSummary {
+	//attackers[i] and defenders[i] are the armies left in the ith outcome
+	private final int[] attackers;
+	private final int[] defenders;
+	//probabilities[i] is the exact probability of the ith outcome, shared
+	private final SmoothFraction[] probabilities;
+	//cumulative[i] is the probability of the ith outcome or a worse one
+	private final double[] cumulative;
+	//the threshold of the distribution summarized, for making outcomes
+	private final int threshold;
+	private final double attackerMean;
+	private final double attackerSquares;
+	private final double defenderMean;
+	private final double defenderSquares;
+
+	/**
+	 * Summarizes outcomes given in order from the defender's best to the
+	 * attacker's best.  The arrays are kept, not copied.
+	 * @param attackers
+	 * @param defenders
+	 * @param probabilities
+	 * @param threshold
+	 */
+	OutcomeSummary(int[] attackers, int[] defenders, SmoothFraction[] probabilities, int threshold) {
+		this.attackers = attackers;
+		this.defenders = defenders;
+		this.probabilities = probabilities;
+		this.threshold = threshold;
+		cumulative = new double[probabilities.length];
+		double total = 0;
+		double a = 0;
+		double a2 = 0;
+		double d = 0;
+		double d2 = 0;
+		for (int i = 0; i < probabilities.length; i++) {
+			double p = probabilities[i].toDouble();
+			total += p;
+			cumulative[i] = total;
+			a += p * attackers[i];
+			a2 += p * attackers[i] * (double)attackers[i];
+			d += p * defenders[i];
+			d2 += p * defenders[i] * (double)defenders[i];
+		}
+		attackerMean = a;
+		attackerSquares = a2;
+		defenderMean = d;
+		defenderSquares = d2;
+	}
+
+	/**
+	 * The expected number of attacking armies left at the end
+	 */
+	public double expectedAttackers() {
+		return attackerMean;
+	}
+
+	/**
+	 * The expected number of defending armies left at the end
+	 */
+	public double expectedDefenders() {
+		return defenderMean;
+	}
+
+	/**
+	 * The variance of the number of attacking armies left at the end
+	 */
+	public double attackerVariance() {
+		return Math.max(0, attackerSquares - attackerMean * attackerMean);
+	}
+
+	/**
+	 * The variance of the number of defending armies left at the end
+	 */
+	public double defenderVariance() {
+		return Math.max(0, defenderSquares - defenderMean * defenderMean);
+	}
+
+	/**
+	 * The worst outcome for the attacker that has at least probability q of
+	 * being no better than the real one: quantile(0.1) is the 10th percentile
+	 * outcome, quantile(0.5) the median.  Returns null if q is not between 0
+	 * and 1.
+	 * @param q
+	 */
+	public BattleOutcome quantile(double q) {
+		if (!(q >= 0 && q <= 1) || cumulative.length == 0)
+			return null;
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] < q)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return outcome(low);
+	}
+
+	/**
+	 * The median outcome, quantile(0.5)
+	 */
+	public BattleOutcome median() {
+		return quantile(0.5);
+	}
+
+	/**
+	 * The probability that the attacker does no better than the given
+	 * outcome, which need not be possible
+	 * @param a
+	 * @param d
+	 */
+	public double cumulativeProbability(int a, int d) {
+		//the outcomes are in order, find the last no better than (a, d)
+		int low = 0;
+		int high = cumulative.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(attackers[mid], defenders[mid], a, d) <= 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return (low == 0) ? 0 : cumulative[low - 1];
+	}
+
+	/**
+	 * The number of possible outcomes
+	 */
+	public int count() {
+		return probabilities.length;
+	}
+
+	/**
+	 * The ith possible outcome from the defender's best, with its own
+	 * probability
+	 * @param i
+	 */
+	public BattleOutcome outcome(int i) {
+		return new BattleOutcome(attackers[i], defenders[i], probabilities[i].toFraction(), threshold);
+	}
+
+	/**
+	 * Orders outcomes as toOutcomeSet() does: fewer defenders left is better
+	 * for the attacker, then more attackers left.
+	 */
+	private static int compare(int a1, int d1, int a2, int d2) {
+		if (d1 != d2)
+			return (d1 > d2) ? -1 : 1;
+		return (a1 < a2) ? -1 : ((a1 == a2) ? 0 : 1);
+	}
+
+	/**
+	 * Summary in human readable form
+	 */
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("Expected attackers left: ").append(attackerMean).append(" (variance ").append(attackerVariance()).append(")\n");
+		b.append("Expected defenders left: ").append(defenderMean).append(" (variance ").append(defenderVariance()).append(")\n");
+		BattleOutcome m = median();
+		BattleOutcome t = quantile(0.1);
+		if (m != null) {
+			b.append("Median outcome: Attacker: ").append(m.getAttackers()).append(" Defender: ").append(m.getDefenders()).append('\n');
+			b.append("10th percentile outcome: Attacker: ").append(t.getAttackers()).append(" Defender: ").append(t.getDefenders());
+		}
+		return b.toString();
+	}
+}
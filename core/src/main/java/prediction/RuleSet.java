@@ -0,0 +1,447 @@
+package prediction;
+import fraction.*;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of dice rules for Risk battles: how many sides each side's dice
+ * have, how many dice each side may roll at most, and who wins a tie.
+ * STANDARD is the ordinary game; anything else is a house rule.  Battle and
+ * ApproximateBattle take a RuleSet, and keep each one's battles apart, so
+ * several variants can be calculated in the same program.  Rule sets made
+ * with of() are shared, so asking for the same rules twice finds the
+ * battles already in the cache.
+ *
+ * The chance of every number of attacker wins for every number of dice is
+ * worked out once, when the RuleSet is made, and kept in flat tables.  It is
+ * counted by order statistics rather than by rolling out every combination:
+ * only the highest dice are compared, so for each side the number of rolls
+ * giving each sorted set of highest dice is built up one die at a time, and
+ * then every pair of attacker and defender sets is compared once.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class RuleSet {
+	//most sorted sets of highest dice highest() will count
+	private static final int MAX_STATES = 1 << 24;
+	//hands out ids to tell rule sets apart in the cache
+	private static final AtomicInteger ids = new AtomicInteger();
+	//rule sets handed out by of(), by their toString()
+	private static final ConcurrentHashMap<String, RuleSet> shared = new ConcurrentHashMap<String, RuleSet>();
+
+	/** the standard rules: six sided dice, three attacking and two defending, ties to the defender */
+	public static final RuleSet STANDARD = new RuleSet(DiceOutcome.DIE_SIDES, DiceOutcome.DIE_SIDES, DiceOutcome.MAX_A_DICE, DiceOutcome.MAX_D_DICE, false);
+
+	static {
+		shared.put(STANDARD.toString(), STANDARD);
+	}
+
+	private final int attackerSides;
+	private final int defenderSides;
+	private final int maxAttackerDice;
+	private final int maxDefenderDice;
+	private final boolean attackerWinsTies;
+	/** unique number of this rule set */
+	final int id;
+	//ids of battles fought to a retreat threshold above 1, made when first needed
+	private final int[] thresholdIds;
+	/** most armies lost in one roll */
+	private final int maxLoss;
+	/** true if every probability has a denominator of the form 2^i * 3^j */
+	private final boolean smooth;
+
+	//probability of awin attacker wins with adice against ddice dice is at
+	//index offset(adice, ddice) + awin of each of these
+	private final Fraction[] probabilities;
+	//null if not smooth
+	private final SmoothFraction[] smoothProbabilities;
+	/** the probabilities as doubles, for ApproximateBattle */
+	final double[] kernel;
+
+	/**
+	 * Makes a rule set and works out all its probabilities.
+	 * @param attackerSides sides on each attacking die
+	 * @param defenderSides sides on each defending die
+	 * @param maxAttackerDice most dice the attacker may roll
+	 * @param maxDefenderDice most dice the defender may roll
+	 * @param attackerWinsTies true if the attacker wins when the dice are equal
+	 * @throws RuntimeException if any number is below 1, or there are too many dice to count
+	 */
+	public RuleSet(int attackerSides, int defenderSides, int maxAttackerDice, int maxDefenderDice, boolean attackerWinsTies) {
+		if (attackerSides < 1 || defenderSides < 1 || maxAttackerDice < 1 || maxDefenderDice < 1)
+			throw new RuntimeException("Dice rules need at least one die of at least one side.");
+		this.attackerSides = attackerSides;
+		this.defenderSides = defenderSides;
+		this.maxAttackerDice = maxAttackerDice;
+		this.maxDefenderDice = maxDefenderDice;
+		this.attackerWinsTies = attackerWinsTies;
+		id = ids.getAndIncrement();
+		thresholdIds = new int[maxAttackerDice + 1];
+		Arrays.fill(thresholdIds, -1);
+		maxLoss = Math.min(maxAttackerDice, maxDefenderDice);
+		smooth = isSmooth(attackerSides) && isSmooth(defenderSides);
+
+		int size = maxAttackerDice * maxDefenderDice * (maxLoss + 1);
+		probabilities = new Fraction[size];
+		smoothProbabilities = smooth ? new SmoothFraction[size] : null;
+		kernel = new double[size];
+		long[] wins = new long[maxLoss + 1];
+		for (int a = 1; a <= maxAttackerDice; a++) {
+			for (int d = 1; d <= maxDefenderDice; d++) {
+				long outcomes = count(a, d, wins);
+				int o = offset(a, d);
+				for (int w = 0; w <= Math.min(a, d); w++) {
+					Fraction f = new Fraction(wins[w], outcomes);
+					f.reduce();
+					//published already reduced, so the shared Fractions have
+					//nothing pending and are never written to again
+					f = new Fraction(f.getNumerator(), f.getDenominator());
+					probabilities[o + w] = f;
+					kernel[o + w] = f.toDouble();
+					if (smooth)
+						smoothProbabilities[o + w] = new SmoothFraction(f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the rule set for these rules, making it only the first time
+	 * they are asked for, so every caller asking for the same rules shares
+	 * one id in the cache.  The standard rules give STANDARD, and with it the
+	 * bundled table.
+	 * @param attackerSides sides on each attacking die
+	 * @param defenderSides sides on each defending die
+	 * @param maxAttackerDice most dice the attacker may roll
+	 * @param maxDefenderDice most dice the defender may roll
+	 * @param attackerWinsTies true if the attacker wins when the dice are equal
+	 * @throws RuntimeException if any number is below 1, or there are too many dice to count
+	 */
+	public static RuleSet of(int attackerSides, int defenderSides, int maxAttackerDice, int maxDefenderDice, boolean attackerWinsTies) {
+		String key = describe(attackerSides, defenderSides, maxAttackerDice, maxDefenderDice, attackerWinsTies);
+		RuleSet r = shared.get(key);
+		if (r == null) {
+			r = new RuleSet(attackerSides, defenderSides, maxAttackerDice, maxDefenderDice, attackerWinsTies);
+			RuleSet other = shared.putIfAbsent(key, r);
+			if (other != null)
+				r = other;
+		}
+		return r;
+	}
+
+	/**
+	 * Return the number of sides on each attacking die.
+	 */
+	public int getAttackerSides() {
+		return attackerSides;
+	}
+
+	/**
+	 * Return the number of sides on each defending die.
+	 */
+	public int getDefenderSides() {
+		return defenderSides;
+	}
+
+	/**
+	 * Return the most dice the attacker may roll.
+	 */
+	public int getMaxAttackerDice() {
+		return maxAttackerDice;
+	}
+
+	/**
+	 * Return the most dice the defender may roll.
+	 */
+	public int getMaxDefenderDice() {
+		return maxDefenderDice;
+	}
+
+	/**
+	 * Return true if the attacker wins when the dice are equal.
+	 */
+	public boolean attackerWinsTies() {
+		return attackerWinsTies;
+	}
+
+	/**
+	 * Return true if Battle can calculate these rules exactly: every
+	 * probability must have a denominator of the form 2^i * 3^j, which is
+	 * the case when both dice have sides of that form (6, 8, 12, 4...).
+	 * ApproximateBattle works with any rules.
+	 */
+	public boolean isSmooth() {
+		return smooth;
+	}
+
+	/**
+	 * Calculates probability of the specified number of attacker wins based on the
+	 * number of dice rolled be each side.
+	 *
+	 * @param adice
+	 * @param ddice
+	 * @param awin
+	 * @return Fraction representing the probability of the event
+	 * @throws RuntimeException if the input isn't ok
+	 */
+	public Fraction probability(int adice, int ddice, int awin) {
+		check(adice, ddice, awin);
+		if (Metrics.ENABLED)
+			Metrics.diceLookups.increment();
+		return probabilities[offset(adice, ddice) + awin];
+	}
+
+	/**
+	 * The same as probability(), but as a SmoothFraction.
+	 *
+	 * @param adice
+	 * @param ddice
+	 * @param awin
+	 * @return SmoothFraction representing the probability of the event
+	 * @throws RuntimeException if the input isn't ok or the rules are not smooth
+	 */
+	public SmoothFraction smoothProbability(int adice, int ddice, int awin) {
+		check(adice, ddice, awin);
+		if (!smooth)
+			throw new RuntimeException("Exact calculation needs dice with sides of the form 2^i * 3^j");
+		if (Metrics.ENABLED)
+			Metrics.diceLookups.increment();
+		return smoothProbabilities[offset(adice, ddice) + awin];
+	}
+
+	/**
+	 * Represent the rules as a string
+	 */
+	public String toString() {
+		return describe(attackerSides, defenderSides, maxAttackerDice, maxDefenderDice, attackerWinsTies);
+	}
+
+	/**
+	 * The rules as toString() prints them, before there is a RuleSet
+	 */
+	private static String describe(int attackerSides, int defenderSides, int maxAttackerDice, int maxDefenderDice, boolean attackerWinsTies) {
+		return "attacker " + maxAttackerDice + "d" + attackerSides + ", defender " + maxDefenderDice + "d" + defenderSides
+			+ ", ties to the " + (attackerWinsTies ? "attacker" : "defender");
+	}
+
+	/**
+	 * The number of dice the attacker rolls with a armies.
+	 * @param a
+	 */
+	int attackerDice(int a) {
+		return Math.min(a - 1, maxAttackerDice);
+	}
+
+	/**
+	 * The number of dice the defender rolls with d armies.
+	 * @param d
+	 */
+	int defenderDice(int d) {
+		return Math.min(d, maxDefenderDice);
+	}
+
+	/**
+	 * The total number of armies lost in one roll of a battle.
+	 * @param a
+	 * @param d
+	 */
+	int losses(int a, int d) {
+		return Math.min(attackerDice(a), defenderDice(d));
+	}
+
+	/**
+	 * The number telling battles under these rules fought until the attacker
+	 * is down to t armies apart from every other kind in the cache; the
+	 * rule set's own id for a fight to the death.
+	 * @param t retreat threshold, 1 to getMaxAttackerDice()
+	 */
+	int cacheId(int t) {
+		if (t == 1)
+			return id;
+		synchronized (thresholdIds) {
+			if (thresholdIds[t] < 0)
+				thresholdIds[t] = ids.getAndIncrement();
+			return thresholdIds[t];
+		}
+	}
+
+	/**
+	 * Number of rows (attacker counts) a calculation looks back over, the
+	 * current row included.
+	 */
+	int window() {
+		return maxLoss + 1;
+	}
+
+	/**
+	 * Where the probabilities for adice against ddice start in the flat tables.
+	 * No bounds checking.
+	 * @param adice
+	 * @param ddice
+	 */
+	int offset(int adice, int ddice) {
+		return ((adice - 1) * maxDefenderDice + (ddice - 1)) * (maxLoss + 1);
+	}
+
+	/**
+	 * Throws a runtime exception if the input isn't ok
+	 * @param adice
+	 * @param ddice
+	 * @param awin
+	 */
+	private void check(int adice, int ddice, int awin) {
+		if ((adice > maxAttackerDice) || (ddice > maxDefenderDice) || (adice < 1) || (ddice < 1) || (awin < 0) || (awin > Math.min(adice, ddice)))
+			throw new RuntimeException("Impossible probability calculation");
+	}
+
+	/**
+	 * Counts the rolls of adice against ddice dice giving each number of
+	 * attacker wins into wins, and returns the total number of rolls.
+	 * @param adice
+	 * @param ddice
+	 * @param wins
+	 */
+	private long count(int adice, int ddice, long[] wins) {
+		int k = Math.min(adice, ddice);
+		long outcomes;
+		try {
+			outcomes = Math.multiplyExact(pow(attackerSides, adice), pow(defenderSides, ddice));
+		} catch (ArithmeticException e) {
+			throw new RuntimeException("Too many dice to count the rolls of.");
+		}
+		long[] attacker = highest(attackerSides, adice, k);
+		long[] defender = highest(defenderSides, ddice, k);
+		//the dice of each state, highest first, for comparing
+		int[][] adigits = digits(attacker, attackerSides, k);
+		int[][] ddigits = digits(defender, defenderSides, k);
+		for (int w = 0; w < wins.length; w++) {
+			wins[w] = 0;
+		}
+		for (int x = 0; x < attacker.length; x++) {
+			if (attacker[x] == 0)
+				continue;
+			for (int y = 0; y < defender.length; y++) {
+				if (defender[y] == 0)
+					continue;
+				int w = 0;
+				for (int i = 0; i < k; i++) {
+					if (adigits[x][i] > ddigits[y][i] || (attackerWinsTies && adigits[x][i] == ddigits[y][i]))
+						w++;
+				}
+				wins[w] += attacker[x] * defender[y];
+			}
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Counts the rolls of n dice of the given sides by their k highest dice.
+	 * A state is the k highest dice so far, highest first, each stored as
+	 * its value (1 to sides) in a base sides + 1 digit with 0 for no die yet,
+	 * and the returned array holds the number of rolls ending in each state.
+	 * @param sides
+	 * @param n
+	 * @param k
+	 */
+	private static long[] highest(int sides, int n, int k) {
+		int base = sides + 1;
+		long size;
+		try {
+			size = pow(base, k);
+		} catch (ArithmeticException e) {
+			size = Long.MAX_VALUE;
+		}
+		if (size > MAX_STATES)
+			throw new RuntimeException("Too many dice to count the rolls of.");
+		int states = (int)size;
+		long[] counts = new long[states];
+		long[] next = new long[states];
+		int[] dice = new int[k + 1];
+		counts[0] = 1;
+		for (int die = 0; die < n; die++) {
+			for (int s = 0; s < states; s++) {
+				next[s] = 0;
+			}
+			for (int s = 0; s < states; s++) {
+				if (counts[s] == 0)
+					continue;
+				for (int v = 1; v <= sides; v++) {
+					//insert v into the sorted dice, dropping the lowest past k
+					int t = s;
+					int m = 0;
+					for (int i = 0; i < k; i++) {
+						int digit = t % base;
+						t /= base;
+						if (digit > 0)
+							dice[m++] = digit;
+					}
+					int i = m;
+					while (i > 0 && dice[i - 1] < v) {
+						dice[i] = dice[i - 1];
+						i--;
+					}
+					dice[i] = v;
+					m = Math.min(m + 1, k);
+					int e = 0;
+					for (int j = m - 1; j >= 0; j--) {
+						e = e * base + dice[j];
+					}
+					next[e] += counts[s];
+				}
+			}
+			long[] swap = counts;
+			counts = next;
+			next = swap;
+		}
+		return counts;
+	}
+
+	/**
+	 * Decodes every state of highest() into its dice, highest first
+	 * @param counts
+	 * @param sides
+	 * @param k
+	 */
+	private static int[][] digits(long[] counts, int sides, int k) {
+		int[][] d = new int[counts.length][];
+		for (int s = 0; s < counts.length; s++) {
+			if (counts[s] == 0)
+				continue;
+			d[s] = new int[k];
+			int t = s;
+			for (int i = 0; i < k; i++) {
+				d[s][i] = t % (sides + 1);
+				t /= sides + 1;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * true if n has no prime factors other than 2 and 3
+	 * @param n
+	 */
+	private static boolean isSmooth(int n) {
+		while (n % 2 == 0)
+			n /= 2;
+		while (n % 3 == 0)
+			n /= 3;
+		return n == 1;
+	}
+
+	/**
+	 * a to the power b, for small b
+	 * @param a
+	 * @param b
+	 */
+	private static long pow(long a, int b) {
+		long r = 1;
+		for (int i = 0; i < b; i++) {
+			r = Math.multiplyExact(r, a);
+		}
+		return r;
+	}
+}
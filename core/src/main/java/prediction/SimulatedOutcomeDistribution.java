@@ -0,0 +1,199 @@
+package prediction;
+
+/**
+ * The outcome of a Monte Carlo simulation of a battle (see MonteCarloBattle):
+ * how many of the simulated battles ended in each final outcome, kept in two
+ * arrays indexed by the surviving armies the same way as
+ * ApproximateOutcomeDistribution.  Probabilities are estimated as the share
+ * of battles, and come with confidence intervals.
+ *
+ * The intervals are Wilson score intervals, which unlike the plain normal
+ * approximation stay inside 0 to 1 and behave for outcomes that were seen
+ * rarely or never.  They take z, the number of standard deviations to cover:
+ * MonteCarloBattle.Z95 for 95% confidence.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class SimulatedOutcomeDistribution {
+	//attackerWins[a] is the number of battles ending (a, 0)
+	long[] attackerWins;
+	//defenderWins[d] is the number of battles ending (1, d)
+	long[] defenderWins;
+	//number of battles simulated
+	long trials;
+
+	/**
+	 * Produces an empty distribution with room for the outcomes of a battle
+	 * starting with a attackers and d defenders.
+	 * @param a
+	 * @param d
+	 */
+	public SimulatedOutcomeDistribution(int a, int d) {
+		attackerWins = new long[Math.max(a, 1) + 1];
+		defenderWins = new long[Math.max(d, 0) + 1];
+	}
+
+	/**
+	 * Adds another simulation of the same battle into this one
+	 * @param o
+	 */
+	void merge(SimulatedOutcomeDistribution o) {
+		for (int i = 0; i < attackerWins.length; i++) {
+			attackerWins[i] += o.attackerWins[i];
+		}
+		for (int i = 0; i < defenderWins.length; i++) {
+			defenderWins[i] += o.defenderWins[i];
+		}
+		trials += o.trials;
+	}
+
+	/**
+	 * Return the number of battles simulated.
+	 */
+	public long getTrials() {
+		return trials;
+	}
+
+	/**
+	 * Return the number of outcomes seen at least once.
+	 */
+	public int count() {
+		int c = 0;
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] > 0)
+				c++;
+		}
+		for (int i = 0; i < defenderWins.length; i++) {
+			if (defenderWins[i] > 0)
+				c++;
+		}
+		return c;
+	}
+
+	/**
+	 * Estimates the probability of the final outcome (a, d), 0 if it was
+	 * never seen.
+	 * @param a
+	 * @param d
+	 */
+	public double probability(int a, int d) {
+		return share(seen(a, d));
+	}
+
+	/**
+	 * Gives a confidence interval for the probability of the final outcome
+	 * (a, d), as {low, high}.
+	 * @param a
+	 * @param d
+	 * @param z standard deviations to cover, MonteCarloBattle.Z95 for 95%
+	 */
+	public double[] probabilityInterval(int a, int d, double z) {
+		return interval(seen(a, d), z);
+	}
+
+	/**
+	 * Estimates the probability of successful invasion with the given number of armies left
+	 * @param n
+	 */
+	public double probVictory(int n) {
+		return share(victories(n));
+	}
+
+	/**
+	 * Gives a confidence interval for the probability of successful invasion
+	 * with the given number of armies left, as {low, high}.
+	 * @param n
+	 * @param z standard deviations to cover, MonteCarloBattle.Z95 for 95%
+	 */
+	public double[] probVictoryInterval(int n, double z) {
+		return interval(victories(n), z);
+	}
+
+	/**
+	 * Represent the distribution as a string, in the same order and format as
+	 * OutcomeDistribution, each estimate followed by its 95% interval.
+	 */
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		for (int i = defenderWins.length - 1; i > 0; i--) {
+			if (defenderWins[i] > 0)
+				append(b, 1, i, defenderWins[i]);
+		}
+		for (int i = 0; i < attackerWins.length; i++) {
+			if (attackerWins[i] > 0)
+				append(b, i, 0, attackerWins[i]);
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Number of battles that ended (a, d)
+	 * @param a
+	 * @param d
+	 */
+	private long seen(int a, int d) {
+		if (BattleOutcome.isFinal(a, d)) {
+			if (d == 0) {
+				if (a < attackerWins.length)
+					return attackerWins[a];
+			} else {
+				if (d < defenderWins.length)
+					return defenderWins[d];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Number of battles won with at least n armies left
+	 * @param n
+	 */
+	private long victories(int n) {
+		long c = 0;
+		for (int i = Math.max(n, 0); i < attackerWins.length; i++) {
+			c += attackerWins[i];
+		}
+		return c;
+	}
+
+	/**
+	 * The share of the battles that k is, 0 if there were none
+	 * @param k
+	 */
+	private double share(long k) {
+		return (trials == 0) ? 0 : (double)k / trials;
+	}
+
+	/**
+	 * The Wilson score interval for k successes in trials
+	 * @param k
+	 * @param z
+	 */
+	private double[] interval(long k, double z) {
+		if (trials == 0)
+			return new double[] {0, 1};
+		double t = trials;
+		double p = k / t;
+		double z2 = z * z;
+		double centre = (p + z2 / (2 * t)) / (1 + z2 / t);
+		double half = z / (1 + z2 / t) * Math.sqrt(p * (1 - p) / t + z2 / (4 * t * t));
+		return new double[] {Math.max(0, centre - half), Math.min(1, centre + half)};
+	}
+
+	/**
+	 * Appends one outcome line, separating it from the previous one
+	 * @param b
+	 * @param a
+	 * @param d
+	 * @param k
+	 */
+	private void append(StringBuilder b, int a, int d, long k) {
+		if (b.length() > 0)
+			b.append('\n');
+		double[] i = interval(k, MonteCarloBattle.Z95);
+		b.append("Attacker: ").append(a).append(" Defender: ").append(d).append(" Probability: ").append(share(k))
+			.append(" (").append(i[0]).append(" to ").append(i[1]).append(')');
+	}
+}
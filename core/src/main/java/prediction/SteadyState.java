@@ -0,0 +1,347 @@
+package prediction;
+import fraction.*;
+import java.math.BigInteger;
+
+/**
+ * Closed form calculation of big battles.  While both sides roll all their
+ * dice (the steady state: at least maxAttackerDice + 1 attackers and
+ * maxDefenderDice defenders), every roll costs the same number of armies
+ * with the same probabilities, so the middle of a battle is a one
+ * dimensional random walk.  When each roll costs two armies, with w0, w1 and
+ * w2 the number of rolls in which the defender loses 0, 1 and 2 of them, the
+ * chance of having lost k defenders after n rolls is the coefficient of t^k
+ * in (w0 + w1 t + w2 t^2)^n over the total number of rolls to the nth power.
+ * Every state inside the steady state is reached that way, since armies
+ * only ever go down.
+ *
+ * Only the states on the edge of the steady state, one or two armies in from
+ * the strip around it, are needed: their chances are walked along each edge
+ * with two recurrences of the coefficients, so each costs a handful of
+ * BigInteger operations.  From the edge the probability mass is pushed
+ * through the strip one state at a time, as ApproximateBattle does with
+ * doubles.  Both the edge and the strip are as long as the sides of the
+ * battle, so the work grows with a + d, not a * d.
+ *
+ * The answers are the same fractions the row by row calculation in Battle
+ * gives, not just the same values, so a battle prints the same however it
+ * got into the cache.  That calculation adds up the chances of every way to
+ * an outcome without reducing, which leaves each over the biggest
+ * denominator among those ways.  In the steady state the biggest one after n
+ * rolls with k defenders lost is found in closed form too (see most()), and
+ * the strip adds up the same way the rows do.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+class SteadyState {
+	/**
+	 * true if the closed form works for the rules and (a, d): every roll in
+	 * the steady state must cost two armies, all three outcomes of it must
+	 * be possible, the probabilities must be exact, and (a, d) must be in it.
+	 * @param r
+	 * @param a
+	 * @param d
+	 */
+	static boolean applies(RuleSet r, int a, int d) {
+		int adice = r.getMaxAttackerDice();
+		int ddice = r.getMaxDefenderDice();
+		if (Math.min(adice, ddice) != 2 || !r.isSmooth())
+			return false;
+		if (r.probability(adice, ddice, 0).isZero() || r.probability(adice, ddice, 2).isZero())
+			return false;
+		return a > adice && d >= ddice;
+	}
+
+	/**
+	 * Calculates all the possible outcomes of a fight to the death, with
+	 * the same fractions as Battle.calcPredict().  Returns null if the closed
+	 * form does not apply (see applies()).
+	 * @param r
+	 * @param a
+	 * @param d
+	 */
+	static OutcomeDistribution predict(RuleSet r, int a, int d) {
+		if (!applies(r, a, d))
+			return null;
+		int adice = r.getMaxAttackerDice();
+		int ddice = r.getMaxDefenderDice();
+		//the steady state is a >= a0 and d >= d0
+		int a0 = adice + 1;
+		int d0 = ddice;
+
+		//weigh the three outcomes of a roll over a common denominator 2^twos * 3^threes
+		SmoothFraction[] p = new SmoothFraction[3];
+		int twos = 0;
+		int threes = 0;
+		for (int k = 0; k < 3; k++) {
+			p[k] = r.smoothProbability(adice, ddice, k);
+			twos = Math.max(twos, p[k].getTwos());
+			threes = Math.max(threes, p[k].getThrees());
+		}
+		BigInteger[] w = new BigInteger[3];
+		for (int k = 0; k < 3; k++) {
+			w[k] = p[k].getNumerator().shiftLeft(twos - p[k].getTwos()).multiply(BigInteger.valueOf(3).pow(threes - p[k].getThrees()));
+		}
+		BigInteger[] reversed = {w[2], w[1], w[0]};
+
+		Strip strip = new Strip(r, a, d, a0, d0);
+		//the edges one and two attackers in from the strip, every defender count
+		for (int e = a0; e <= a0 + 1 && e <= a; e++) {
+			Edge edge = new Edge(w, a - e);
+			for (int k = edge.defenderLosses(); d - k >= d0; k = edge.next()) {
+				strip.leave(e, d - k, mass(edge.value(), twos, threes, edge.rolls(), k, p), p);
+			}
+		}
+		//the edges one and two defenders in from the strip, the attackers not done above
+		for (int e = d0; e <= d0 + 1 && e <= d; e++) {
+			//the same walk with the outcomes reversed counts attacker losses
+			Edge edge = new Edge(reversed, d - e);
+			for (int k = edge.defenderLosses(); a - k >= a0 + 2; k = edge.next()) {
+				strip.leave(a - k, e, mass(edge.value(), twos, threes, edge.rolls(), 2 * edge.rolls() - k, p), p);
+			}
+		}
+		return strip.finish();
+	}
+
+	/**
+	 * The chance c / (2^(twos * n) * 3^(threes * n)) of a state n rolls into
+	 * the steady state with k defenders lost, over the denominator the row by
+	 * row calculation gives it.
+	 * @param c
+	 * @param twos
+	 * @param threes
+	 * @param n
+	 * @param k
+	 * @param p chances of the defender losing 0, 1 and 2
+	 */
+	private static SmoothFraction mass(BigInteger c, int twos, int threes, int n, int k, SmoothFraction[] p) {
+		int t = most(p[0].getTwos(), p[1].getTwos(), p[2].getTwos(), n, k);
+		int h = most(p[0].getThrees(), p[1].getThrees(), p[2].getThrees(), n, k);
+		//the biggest denominator is at most the common one, and divides it
+		c = c.shiftRight(twos * n - t).divide(BigInteger.valueOf(3).pow(threes * n - h));
+		return new SmoothFraction(c, t, h);
+	}
+
+	/**
+	 * The biggest exponent of one prime in the denominator of a way through n
+	 * rolls that costs the defender k armies, where a roll costing the
+	 * defender i armies has exponent ei.  With n2 rolls costing the defender
+	 * two there are k - 2 n2 costing one and n - k + n2 costing none, so the
+	 * exponent is linear in n2 and biggest at one end of its range.
+	 */
+	private static int most(int e0, int e1, int e2, int n, int k) {
+		int slope = e0 - 2 * e1 + e2;
+		int n2 = (slope > 0) ? k / 2 : Math.max(0, k - n);
+		return (n - k) * e0 + k * e1 + n2 * slope;
+	}
+
+	/**
+	 * Walks the coefficients [t^(2n - lost)] (w0 + w1 t + w2 t^2)^n for
+	 * n = ceil(lost / 2), ceil(lost / 2) + 1, and so on: the chances (times
+	 * the total rolls to the nth power) of the states after n rolls in which
+	 * one side has lost exactly lost armies.  Four neighbouring coefficients
+	 * c(n, k - 1) to c(n, k + 2) of the current power are kept.  The next
+	 * power's first two come from multiplying in one more roll,
+	 *   c(n + 1, k) = w0 c(n, k) + w1 c(n, k - 1) + w2 c(n, k - 2),
+	 * and the other two from the recurrence that comes from P f' = n P' f
+	 * for f = P^n,
+	 *   w0 (k + 1) c(n, k + 1) = (n - k) w1 c(n, k) + (2n - k + 1) w2 c(n, k - 1),
+	 * which divides exactly.
+	 */
+	private static class Edge {
+		private final BigInteger w0;
+		private final BigInteger w1;
+		private final BigInteger w2;
+		private final int lost;
+		//the current power
+		private int n;
+		//c[i] is c(n, k - 1 + i) with k = 2n - lost
+		private BigInteger[] c = new BigInteger[4];
+
+		Edge(BigInteger[] w, int lost) {
+			w0 = w[0];
+			w1 = w[1];
+			w2 = w[2];
+			this.lost = lost;
+			n = (lost + 1) / 2;
+			int k = 2 * n - lost;
+			//count up from c(n, 0) = w0^n, c(n, -1) = 0
+			BigInteger less = BigInteger.ZERO;
+			BigInteger cur = w0.pow(n);
+			for (int j = 0; j < k; j++) {
+				BigInteger t = up(n, j, cur, less);
+				less = cur;
+				cur = t;
+			}
+			c[0] = less;
+			c[1] = cur;
+			c[2] = up(n, k, c[1], c[0]);
+			c[3] = up(n, k + 1, c[2], c[1]);
+		}
+
+		/**
+		 * Return the number of rolls so far
+		 */
+		int rolls() {
+			return n;
+		}
+
+		/**
+		 * Return the other side's losses so far, k = 2n - lost
+		 */
+		int defenderLosses() {
+			return 2 * n - lost;
+		}
+
+		/**
+		 * Return the coefficient for the current state
+		 */
+		BigInteger value() {
+			return c[1];
+		}
+
+		/**
+		 * Moves on one roll and returns the other side's new losses
+		 */
+		int next() {
+			int k = 2 * n - lost;
+			BigInteger c1 = w0.multiply(c[2]).add(w1.multiply(c[1])).add(w2.multiply(c[0]));
+			BigInteger c2 = w0.multiply(c[3]).add(w1.multiply(c[2])).add(w2.multiply(c[1]));
+			n++;
+			k += 2;
+			c[0] = c1;
+			c[1] = c2;
+			c[2] = up(n, k, c[1], c[0]);
+			c[3] = up(n, k + 1, c[2], c[1]);
+			return k;
+		}
+
+		/**
+		 * c(m, k + 1) from c(m, k) and c(m, k - 1)
+		 */
+		private BigInteger up(int m, int k, BigInteger ck, BigInteger less) {
+			BigInteger t = w1.multiply(ck).multiply(BigInteger.valueOf(m - k))
+				.add(w2.multiply(less).multiply(BigInteger.valueOf(2L * m - k + 1)));
+			return t.divide(w0.multiply(BigInteger.valueOf(k + 1)));
+		}
+	}
+
+	/**
+	 * The states around the steady state, where at least one side rolls
+	 * fewer dice: fewer than a0 attackers or fewer than d0 defenders.
+	 * Probability mass enters from the edge of the steady state and is
+	 * pushed through to the finished battles.
+	 */
+	private static class Strip {
+		private final RuleSet r;
+		private final int a;
+		private final int d;
+		private final int a0;
+		private final int d0;
+		//few[x][y] is the mass at (x, y) for x < a0
+		private final SmoothFraction[][] few;
+		//thin[x][y] is the mass at (x, y) for x >= a0, y < d0
+		private final SmoothFraction[][] thin;
+		//the chances of the finished battles
+		private final SmoothFraction[] attackerWins;
+		private final SmoothFraction[] defenderWins;
+
+		Strip(RuleSet r, int a, int d, int a0, int d0) {
+			this.r = r;
+			this.a = a;
+			this.d = d;
+			this.a0 = a0;
+			this.d0 = d0;
+			few = new SmoothFraction[a0][d + 1];
+			thin = new SmoothFraction[a + 1][d0];
+			attackerWins = new SmoothFraction[a + 1];
+			defenderWins = new SmoothFraction[d + 1];
+		}
+
+		/**
+		 * Adds the mass leaving the steady state from (x, y) in one roll
+		 * @param x
+		 * @param y
+		 * @param m chance of reaching (x, y)
+		 * @param p chances of the defender losing 0, 1 and 2
+		 */
+		void leave(int x, int y, SmoothFraction m, SmoothFraction[] p) {
+			for (int k = 0; k < 3; k++) {
+				int nx = x - 2 + k;
+				int ny = y - k;
+				if (nx < a0 || ny < d0)
+					add(nx, ny, m, p[k]);
+			}
+		}
+
+		/**
+		 * Pushes all the mass to the finished battles, most armies first,
+		 * and returns them as a distribution
+		 */
+		OutcomeDistribution finish() {
+			for (int s = a + d; s > 2; s--) {
+				for (int x = 2; x < a0 && x < s; x++) {
+					push(x, s - x);
+				}
+				for (int y = 1; y < d0 && y < s; y++) {
+					if (s - y >= a0)
+						push(s - y, y);
+				}
+			}
+			OutcomeDistribution o = new OutcomeDistribution(a, d);
+			for (int x = 0; x <= a; x++) {
+				if (attackerWins[x] != null)
+					o.merge(x, 0, attackerWins[x]);
+			}
+			for (int y = 0; y <= d; y++) {
+				if (defenderWins[y] != null)
+					o.merge(1, y, defenderWins[y]);
+			}
+			return o;
+		}
+
+		/**
+		 * Moves the mass at (x, y), if any, on by one roll
+		 * @param x
+		 * @param y
+		 */
+		private void push(int x, int y) {
+			if (y > d || x > a)
+				return;
+			SmoothFraction m = (x < a0) ? few[x][y] : thin[x][y];
+			if (m == null)
+				return;
+			int adice = r.attackerDice(x);
+			int ddice = r.defenderDice(y);
+			int loss = Math.min(adice, ddice);
+			for (int k = 0; k <= loss; k++) {
+				add(x - loss + k, y - k, m, r.smoothProbability(adice, ddice, k));
+			}
+		}
+
+		/**
+		 * Adds m * p to the mass at (x, y), or to the finished battle there
+		 */
+		private void add(int x, int y, SmoothFraction m, SmoothFraction p) {
+			SmoothFraction t = new SmoothFraction(m);
+			t.multiply(p);
+			if (y == 0) {
+				attackerWins[x] = sum(attackerWins[x], t);
+			} else if (x == 1) {
+				defenderWins[y] = sum(defenderWins[y], t);
+			} else if (x < a0) {
+				few[x][y] = sum(few[x][y], t);
+			} else {
+				thin[x][y] = sum(thin[x][y], t);
+			}
+		}
+
+		private static SmoothFraction sum(SmoothFraction slot, SmoothFraction t) {
+			if (slot == null)
+				return t;
+			slot.add(t);
+			return slot;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package prediction;
+
+/**
+ * The inner loop of ApproximateBattle's grid fills: a run of cells that all
+ * roll the same dice, each the same weighted sum of a few neighbours one
+ * roll away.  This version is plain scalar code.  When the JVM has the
+ * incubating Vector API (run with --add-modules jdk.incubator.vector) and
+ * -Driskrisk.vector is not false, VectorStencilKernel does the same sums a
+ * whole vector of cells at a time instead; it is only loaded by name, so
+ * nothing breaks when the module is missing.  Both add the terms in the same
+ * order without fusing, so their answers are identical.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+class StencilKernel {
+	/** the scalar kernel, always there */
+	static final StencilKernel SCALAR = new StencilKernel();
+	/** the vector kernel, null if the JVM cannot run it or it is turned off */
+	static final StencilKernel VECTOR = loadVector();
+
+	/**
+	 * Loads VectorStencilKernel if the Vector API module is in the JVM
+	 */
+	private static StencilKernel loadVector() {
+		if (!Boolean.parseBoolean(System.getProperty("riskrisk.vector", "true")))
+			return null;
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return null;
+		try {
+			return (StencilKernel)Class.forName("prediction.VectorStencilKernel").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Sets dst[i] to c[0] * src[i - shift] + ... + c[taps - 1] * src[i - shift + taps - 1],
+	 * added up in that order, for every i from lo to hi.
+	 * @param src
+	 * @param dst
+	 * @param lo
+	 * @param hi
+	 * @param c
+	 * @param taps
+	 * @param shift
+	 */
+	void apply(double[] src, double[] dst, int lo, int hi, double[] c, int taps, int shift) {
+		for (int i = lo; i <= hi; i++) {
+			double v = 0;
+			for (int k = 0; k < taps; k++) {
+				v += c[k] * src[i - shift + k];
+			}
+			dst[i] = v;
+		}
+	}
+
+	/**
+	 * What the kernel runs on, for reports
+	 */
+	public String toString() {
+		return "scalar";
+	}
+}
@@ -0,0 +1,49 @@
+package prediction;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * StencilKernel in vector lanes: as many cells as the machine's widest
+ * double vector holds are summed at once, the leftover cells at the end of
+ * the run one at a time.  Products and sums are rounded separately, as in
+ * the scalar kernel, so the answers are identical.  Needs the incubating
+ * jdk.incubator.vector module; only ever loaded through StencilKernel.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+final class VectorStencilKernel extends StencilKernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	void apply(double[] src, double[] dst, int lo, int hi, double[] c, int taps, int shift) {
+		int lanes = SPECIES.length();
+		int i = lo;
+		if (taps == 3) {
+			//the standard rules: two armies lost a roll, three ways to lose them
+			DoubleVector c0 = DoubleVector.broadcast(SPECIES, c[0]);
+			DoubleVector c1 = DoubleVector.broadcast(SPECIES, c[1]);
+			DoubleVector c2 = DoubleVector.broadcast(SPECIES, c[2]);
+			for (; i + lanes - 1 <= hi; i += lanes) {
+				int s = i - shift;
+				DoubleVector v = DoubleVector.fromArray(SPECIES, src, s).mul(c0);
+				v = v.add(DoubleVector.fromArray(SPECIES, src, s + 1).mul(c1));
+				v = v.add(DoubleVector.fromArray(SPECIES, src, s + 2).mul(c2));
+				v.intoArray(dst, i);
+			}
+		} else {
+			for (; i + lanes - 1 <= hi; i += lanes) {
+				DoubleVector v = DoubleVector.zero(SPECIES);
+				for (int k = 0; k < taps; k++) {
+					v = v.add(DoubleVector.fromArray(SPECIES, src, i - shift + k).mul(c[k]));
+				}
+				v.intoArray(dst, i);
+			}
+		}
+		super.apply(src, dst, i, hi, c, taps, shift);
+	}
+
+	public String toString() {
+		return "vector (" + SPECIES.length() + " doubles)";
+	}
+}
@@ -0,0 +1,84 @@
+package prediction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bounds the error of ApproximateBattle against the exact Battle engine,
+ * outcome by outcome and for the probability of victory, over a grid of
+ * battles under several rule sets and with both grid kernels.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class ApproximateBattleTest {
+	/** most absolute error allowed in any probability; seen errors are near 1e-15 */
+	private static final double TOLERANCE = 1e-13;
+	private static final int SIZE = 30;
+
+	private static final RuleSet[] RULES = {
+		RuleSet.STANDARD,
+		//eight sided attacking dice
+		new RuleSet(8, 6, 3, 2, false),
+		//three defending dice, attacker wins ties: up to three armies a roll
+		new RuleSet(6, 6, 3, 3, true),
+		//one army a roll
+		new RuleSet(4, 6, 2, 1, false)
+	};
+
+	private boolean vector;
+
+	@BeforeEach
+	public void setUp() {
+		vector = !ApproximateBattle.getKernel().equals("scalar");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		ApproximateBattle.useVectorKernel(vector);
+	}
+
+	@Test
+	public void outcomesMatchExact() {
+		for (int k = 0; k < RULES.length; k++) {
+			RuleSet r = RULES[k];
+			for (int a = 1; a <= SIZE; a++) {
+				for (int d = 1; d <= SIZE; d++) {
+					OutcomeDistribution exact = Battle.predictDistribution(r, a, d);
+					ApproximateOutcomeDistribution approx = ApproximateBattle.predict(r, a, d);
+					for (int i = 0; i <= a; i++) {
+						assertClose(exact.probability(i, 0).toDouble(), approx.probability(i, 0), r, a, d, "(" + i + ", 0)");
+					}
+					for (int j = 1; j <= d; j++) {
+						assertClose(exact.probability(1, j).toDouble(), approx.probability(1, j), r, a, d, "(1, " + j + ")");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void victoryMatchesExactWithEitherKernel() {
+		boolean[] kernels = {false, true};
+		for (int v = 0; v < kernels.length; v++) {
+			ApproximateBattle.useVectorKernel(kernels[v]);
+			for (int k = 0; k < RULES.length; k++) {
+				RuleSet r = RULES[k];
+				for (int a = 1; a <= SIZE; a++) {
+					for (int d = 1; d <= SIZE; d++) {
+						for (int n = 1; n <= a; n += 7) {
+							double exact = Battle.probVictory(r, a, d, n).toDouble();
+							assertClose(exact, ApproximateBattle.probVictory(r, a, d, n), r, a, d, "victory with " + n + " left, " + ApproximateBattle.getKernel() + " kernel");
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void assertClose(double exact, double approx, RuleSet r, int a, int d, String what) {
+		assertEquals(exact, approx, TOLERANCE, r + " " + a + "x" + d + " " + what);
+	}
+}
@@ -0,0 +1,73 @@
+package prediction;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Playing well can never be worth less than fighting to the death with all
+ * the dice, so AttackPolicy's values must never fall below Battle's
+ * probabilities of victory; and isThreshold() must tell policies that stop
+ * while ahead from ones that do not.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class AttackPolicyTest {
+	private static final int ATTACKERS = 30;
+	private static final int DEFENDERS = 20;
+	/** room for the rounding of doubles against the exact fractions */
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void neverBelowFightToTheDeath() {
+		RuleSet[] rules = {RuleSet.STANDARD, RuleSet.of(8, 6, 3, 2, false), RuleSet.of(6, 6, 2, 3, true)};
+		for (int k = 0; k < rules.length; k++) {
+			RuleSet r = rules[k];
+			for (int n = 1; n <= 3; n++) {
+				AttackPolicy p = AttackPolicy.solve(r, ATTACKERS, DEFENDERS, Objective.victory(n));
+				for (int a = 2; a <= ATTACKERS; a++) {
+					for (int d = 1; d <= DEFENDERS; d++) {
+						double death = Battle.probVictory(r, a, d, n).toDouble();
+						assertTrue(p.value(a, d) >= death - EPSILON, r + " " + a + "x" + d + ", " + n + " left: " + p.value(a, d) + " below " + death);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void victoryAtOneLeftIsFightToTheDeath() {
+		//stopping is worth nothing, so all the dice all the way is best
+		AttackPolicy p = AttackPolicy.solve(ATTACKERS, DEFENDERS, Objective.victory(1));
+		for (int a = 2; a <= ATTACKERS; a++) {
+			for (int d = 1; d <= DEFENDERS; d++) {
+				assertEquals(Battle.probVictory(a, d, 1).toDouble(), p.value(a, d), EPSILON, a + "x" + d);
+			}
+		}
+		for (int d = 1; d <= DEFENDERS; d++) {
+			assertEquals(2, p.threshold(d));
+			assertTrue(p.isThreshold(d));
+		}
+	}
+
+	@Test
+	public void stoppingWhileAhead() {
+		//stopping with ten or more attackers left is worth more than any conquest
+		Objective rich = new Objective() {
+			public double conquest(int a) {
+				return 1;
+			}
+
+			public double stop(int a, int d) {
+				return (a >= 10) ? 100 : 0;
+			}
+		};
+		AttackPolicy p = AttackPolicy.solve(ATTACKERS, DEFENDERS, rich);
+		for (int d = 1; d <= DEFENDERS; d++) {
+			assertEquals(2, p.threshold(d));
+			assertFalse(p.isThreshold(d), d + " defenders");
+			assertEquals(AttackPolicy.STOP, p.dice(10, d));
+			assertNotEquals(AttackPolicy.STOP, p.dice(9, d));
+		}
+	}
+}
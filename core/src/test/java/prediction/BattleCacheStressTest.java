@@ -0,0 +1,113 @@
+package prediction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the shared Battle cache from many threads at once, with
+ * overlapping battles, while another thread clears it, precomputes into it
+ * and squeezes its budget so eviction keeps running.  Every answer must
+ * match the one a single thread gets from a fresh cache.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class BattleCacheStressTest {
+	//battles up to SIZE a side, small enough to stay out of the closed form
+	private static final int SIZE = 40;
+	private static final int THREADS = 8;
+	private static final int QUERIES = 400;
+
+	private long budget;
+
+	@BeforeEach
+	public void setUp() {
+		budget = Battle.getCacheBudget();
+		//calculate everything, rather than read the small battles from the jar
+		Battle.useTable(null);
+		Battle.clearCache();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		Battle.setCacheBudget(budget);
+		Battle.clearCache();
+		Battle.useTable(BattleTable.bundled());
+	}
+
+	@Test
+	public void concurrentQueriesMatchOneThread() throws Exception {
+		//the answers from one thread filling a fresh cache
+		final String[][] expected = new String[SIZE + 1][SIZE + 1];
+		for (int a = 1; a <= SIZE; a++) {
+			for (int d = 1; d <= SIZE; d++) {
+				expected[a][d] = Battle.predict(a, d).toString();
+			}
+		}
+		long full = Battle.getCacheStats().getWeight();
+		for (int a = 10; a <= SIZE; a += 15) {
+			assertEquals(expected[a][SIZE], Battle.predictUncached(a, SIZE).toString(), "uncached " + a + "x" + SIZE);
+		}
+		Battle.clearCache();
+		//a quarter of what everything takes, so eviction runs throughout
+		Battle.setCacheBudget(full / 4);
+
+		final AtomicBoolean done = new AtomicBoolean();
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+		try {
+			List<Future<Void>> queries = new ArrayList<Future<Void>>();
+			for (int t = 0; t < THREADS; t++) {
+				final long seed = t;
+				queries.add(pool.submit(new Callable<Void>() {
+					public Void call() {
+						Random random = new Random(seed);
+						for (int q = 0; q < QUERIES; q++) {
+							//most queries land in the same corner, so threads meet on cells
+							int a = 1 + random.nextInt((q % 3 == 0) ? SIZE : SIZE / 2);
+							int d = 1 + random.nextInt((q % 3 == 0) ? SIZE : SIZE / 2);
+							assertEquals(expected[a][d], Battle.predict(a, d).toString(), a + "x" + d);
+						}
+						return null;
+					}
+				}));
+			}
+			Future<Void> churn = pool.submit(new Callable<Void>() {
+				public Void call() {
+					for (int i = 0; !done.get(); i++) {
+						if (i % 3 == 0) {
+							Battle.clearCache();
+						} else {
+							Battle.precompute(SIZE / 2 + i % (SIZE / 2), SIZE / 2);
+						}
+					}
+					return null;
+				}
+			});
+			for (Future<Void> f : queries) {
+				f.get(5, TimeUnit.MINUTES);
+			}
+			done.set(true);
+			churn.get(5, TimeUnit.MINUTES);
+		} finally {
+			done.set(true);
+			pool.shutdownNow();
+		}
+
+		CacheStats s = Battle.getCacheStats();
+		assertTrue(s.getEvictions() > 0, "nothing was evicted: " + s);
+		Battle.clearCache();
+		assertEquals(0, Battle.getCacheStats().getCells());
+		assertEquals(0, Battle.getCacheStats().getWeight());
+	}
+}
@@ -0,0 +1,75 @@
+package prediction;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the moments BattleMoments fills in without the outcomes against
+ * OutcomeSummary's, which are read off the exact outcomes, and the summary
+ * itself against a plain sum over its outcomes.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class BattleMomentsTest {
+	private static final int ATTACKERS = 25;
+	private static final int DEFENDERS = 20;
+	/** room for doubles summed in a different order */
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	public void matchesSummary() {
+		RuleSet[] rules = {RuleSet.STANDARD, RuleSet.of(8, 6, 3, 2, false), RuleSet.of(6, 6, 2, 3, true)};
+		for (int k = 0; k < rules.length; k++) {
+			RuleSet r = rules[k];
+			BattleMoments m = BattleMoments.compute(r, ATTACKERS, DEFENDERS);
+			for (int a = 2; a <= ATTACKERS; a++) {
+				for (int d = 1; d <= DEFENDERS; d++) {
+					OutcomeSummary s = Battle.predictDistribution(r, a, d).summary();
+					String what = r + " " + a + "x" + d;
+					assertEquals(s.expectedAttackers(), m.expectedAttackers(a, d), EPSILON, what);
+					assertEquals(s.expectedDefenders(), m.expectedDefenders(a, d), EPSILON, what);
+					assertEquals(s.attackerVariance(), m.attackerVariance(a, d), EPSILON, what);
+					assertEquals(s.defenderVariance(), m.defenderVariance(a, d), EPSILON, what);
+					assertEquals(Battle.probVictory(r, a, d, 1).toDouble(), m.probVictory(a, d), EPSILON, what);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void summaryMatchesOutcomes() {
+		for (int a = 2; a <= ATTACKERS; a += 3) {
+			for (int d = 1; d <= DEFENDERS; d += 3) {
+				OutcomeSummary s = Battle.predictDistribution(a, d).summary();
+				double total = 0;
+				double ea = 0;
+				double ea2 = 0;
+				double ed = 0;
+				double ed2 = 0;
+				for (int i = 0; i < s.count(); i++) {
+					BattleOutcome o = s.outcome(i);
+					double p = o.probability.toDouble();
+					total += p;
+					ea += p * o.getAttackers();
+					ea2 += p * o.getAttackers() * o.getAttackers();
+					ed += p * o.getDefenders();
+					ed2 += p * o.getDefenders() * o.getDefenders();
+					assertEquals(total, s.cumulativeProbability(o.getAttackers(), o.getDefenders()), EPSILON, a + "x" + d + " outcome " + i);
+				}
+				String what = a + "x" + d;
+				assertEquals(1, total, EPSILON, what);
+				assertEquals(ea, s.expectedAttackers(), EPSILON, what);
+				assertEquals(ed, s.expectedDefenders(), EPSILON, what);
+				assertEquals(ea2 - ea * ea, s.attackerVariance(), EPSILON, what);
+				assertEquals(ed2 - ed * ed, s.defenderVariance(), EPSILON, what);
+			}
+		}
+	}
+
+	@Test
+	public void illegalBattles() {
+		assertNull(BattleMoments.compute(0, 5));
+		assertNull(BattleMoments.compute(5, -1));
+	}
+}
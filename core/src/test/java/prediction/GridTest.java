@@ -0,0 +1,96 @@
+package prediction;
+import fraction.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the tables Grid streams through CsvGridSink and BinaryGridSink
+ * against Battle.probVictory() and ApproximateBattle.probVictory() battle by
+ * battle.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class GridTest {
+	private static final RuleSet[] RULES = {RuleSet.STANDARD, RuleSet.of(8, 6, 3, 2, false)};
+
+	@Test
+	public void csvExact() throws IOException {
+		for (int k = 0; k < RULES.length; k++) {
+			RuleSet r = RULES[k];
+			for (int n = 1; n <= 3; n++) {
+				StringWriter w = new StringWriter();
+				Grid.victory(r, 3, 20, 2, 15, n, Battle.EXACT, new CsvGridSink(w, Fraction.PRINT_FRACTION));
+				String[] lines = w.toString().split("\n");
+				assertEquals(1 + 18, lines.length);
+				assertEquals("attackers,2,3,4,5,6,7,8,9,10,11,12,13,14,15", lines[0]);
+				for (int a = 3; a <= 20; a++) {
+					String[] cells = lines[a - 2].split(",");
+					assertEquals(1 + 14, cells.length);
+					assertEquals(Integer.toString(a), cells[0]);
+					for (int d = 2; d <= 15; d++) {
+						Fraction f = new Fraction(Battle.probVictory(r, a, d, n));
+						f.reduce();
+						assertEquals(f.toString(Fraction.PRINT_FRACTION), cells[d - 1], r + " " + a + "x" + d + ", " + n + " left");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void csvApproximate() throws IOException {
+		StringWriter w = new StringWriter();
+		Grid.victory(RuleSet.STANDARD, 2, 30, 1, 30, 2, Battle.APPROXIMATE, new CsvGridSink(w, Fraction.PRINT_FRACTION));
+		String[] lines = w.toString().split("\n");
+		assertEquals(1 + 29, lines.length);
+		for (int a = 2; a <= 30; a++) {
+			String[] cells = lines[a - 1].split(",");
+			assertEquals(Integer.toString(a), cells[0]);
+			for (int d = 1; d <= 30; d++) {
+				assertEquals(ApproximateBattle.probVictory(a, d, 2), Double.parseDouble(cells[d]), a + "x" + d);
+			}
+		}
+	}
+
+	@Test
+	public void binary() throws IOException {
+		int[] modes = {Battle.EXACT, Battle.APPROXIMATE};
+		for (int k = 0; k < RULES.length; k++) {
+			RuleSet r = RULES[k];
+			for (int m = 0; m < modes.length; m++) {
+				ByteArrayOutputStream b = new ByteArrayOutputStream();
+				Grid.victory(r, 5, 25, 3, 12, 1, modes[m], new BinaryGridSink(b));
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(b.toByteArray()));
+				assertEquals(0x52524756, in.readInt());
+				assertEquals(1, in.readInt());
+				assertEquals(5, in.readInt());
+				assertEquals(25, in.readInt());
+				assertEquals(3, in.readInt());
+				assertEquals(12, in.readInt());
+				for (int a = 5; a <= 25; a++) {
+					for (int d = 3; d <= 12; d++) {
+						double expected = (modes[m] == Battle.EXACT) ? Battle.probVictory(r, a, d, 1).toDouble() : ApproximateBattle.probVictory(r, a, d, 1);
+						assertEquals(expected, in.readDouble(), r + " " + a + "x" + d);
+					}
+				}
+				assertEquals(-1, in.read(), "nothing after the last row");
+			}
+		}
+	}
+
+	@Test
+	public void illegalGrids() {
+		StringWriter w = new StringWriter();
+		assertThrows(RuntimeException.class, () -> Grid.victory(1, 5, 1, 5, 1, Battle.EXACT, new CsvGridSink(w, Fraction.PRINT_FRACTION)));
+		assertThrows(RuntimeException.class, () -> Grid.victory(5, 4, 1, 5, 1, Battle.EXACT, new CsvGridSink(w, Fraction.PRINT_FRACTION)));
+		assertThrows(RuntimeException.class, () -> Grid.victory(2, 5, 1, 5, 1, 7, new CsvGridSink(w, Fraction.PRINT_FRACTION)));
+		assertEquals("", w.toString(), "nothing written for an illegal grid");
+	}
+}
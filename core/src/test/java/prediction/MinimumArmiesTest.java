@@ -0,0 +1,80 @@
+package prediction;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks Battle.minimumAttackers() and Battle.minimumDefenders() against a
+ * plain search over probVictory(), and that they give up under rules where
+ * the target can never be met.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class MinimumArmiesTest {
+	private static final double[] TARGETS = {0.01, 0.5, 0.9, 0.999};
+
+	@Test
+	public void attackersMatchSearch() {
+		for (int d = 1; d <= 12; d++) {
+			for (int t = 0; t < TARGETS.length; t++) {
+				for (int n = 1; n <= 3; n++) {
+					int a = 2;
+					while (Battle.probVictory(a, d, n).toDouble() < TARGETS[t])
+						a++;
+					assertEquals(a, Battle.minimumAttackers(d, TARGETS[t], n), d + " defenders, " + TARGETS[t] + ", " + n + " left");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void defendersMatchSearch() {
+		for (int a = 2; a <= 12; a++) {
+			for (int t = 0; t < TARGETS.length; t++) {
+				int d = 1;
+				while (1 - Battle.probVictory(a, d, 1).toDouble() < TARGETS[t])
+					d++;
+				assertEquals(d, Battle.minimumDefenders(a, TARGETS[t]), a + " attackers, " + TARGETS[t]);
+			}
+		}
+	}
+
+	@Test
+	public void approximateMatchesSearch() {
+		RuleSet[] rules = {RuleSet.STANDARD, RuleSet.of(5, 6, 3, 2, false)};
+		for (int k = 0; k < rules.length; k++) {
+			RuleSet r = rules[k];
+			for (int x = 1; x <= 12; x++) {
+				for (int t = 0; t < TARGETS.length; t++) {
+					for (int n = 1; n <= 3; n++) {
+						int a = 2;
+						while (ApproximateBattle.probVictory(r, a, x, n) < TARGETS[t])
+							a++;
+						assertEquals(a, ApproximateBattle.minimumAttackers(r, x, TARGETS[t], n), r + " " + x + " defenders, " + TARGETS[t] + ", " + n + " left");
+					}
+					int d = 1;
+					while (1 - ApproximateBattle.probVictory(r, x + 1, d, 1) < TARGETS[t])
+						d++;
+					assertEquals(d, ApproximateBattle.minimumDefenders(r, x + 1, TARGETS[t]), r + " " + (x + 1) + " attackers, " + TARGETS[t]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void impossibleTargets() {
+		//a one sided attacking die never beats a defender
+		RuleSet hopeless = new RuleSet(1, 6, 3, 2, false);
+		assertEquals(-1, Battle.minimumAttackers(hopeless, 5, 0.5, 1));
+		//a one sided defending die that loses ties never holds
+		RuleSet helpless = new RuleSet(6, 1, 3, 2, true);
+		assertEquals(-1, Battle.minimumDefenders(helpless, 5, 0.5));
+		assertEquals(2, Battle.minimumAttackers(helpless, 5, 0.5, 1));
+		assertEquals(-1, Battle.minimumAttackers(5, 1, 1));
+		assertEquals(-1, Battle.minimumDefenders(5, 1));
+		assertEquals(-1, ApproximateBattle.minimumAttackers(hopeless, 5, 0.5, 1));
+		assertEquals(-1, ApproximateBattle.minimumDefenders(helpless, 5, 0.5));
+		assertEquals(-1, ApproximateBattle.minimumAttackers(RuleSet.of(1, 5, 3, 2, false), 5, 0.5, 1));
+	}
+}
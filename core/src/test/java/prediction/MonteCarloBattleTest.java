@@ -0,0 +1,98 @@
+package prediction;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks MonteCarloBattle against the exact numbers from Battle on small
+ * battles, and that a seed gives the same simulation on any number of
+ * threads.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class MonteCarloBattleTest {
+	private static final long SEED = 20050401L;
+	private static final int SIZE = 8;
+	private static final long TRIALS = 100000;
+	/** wide enough that a miss by chance is about one in 16,000 */
+	private static final double Z = 4;
+
+	@Test
+	public void intervalsCoverExact() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			RuleSet[] rules = {RuleSet.STANDARD, new RuleSet(8, 6, 3, 2, false)};
+			int checks = 0;
+			int covered95 = 0;
+			for (int k = 0; k < rules.length; k++) {
+				RuleSet r = rules[k];
+				for (int a = 2; a <= SIZE; a++) {
+					for (int d = 1; d <= SIZE; d++) {
+						SimulatedOutcomeDistribution s = MonteCarloBattle.simulate(r, a, d, TRIALS, SEED + 1000 * k + 31 * a + d, pool);
+						assertEquals(TRIALS, s.getTrials());
+						OutcomeDistribution exact = Battle.predictDistribution(r, a, d);
+						for (int n = 1; n <= a; n++) {
+							double p = Battle.probVictory(r, a, d, n).toDouble();
+							String what = r + " " + a + "x" + d + " victory with " + n + " left";
+							assertCovers(p, s.probVictoryInterval(n, Z), what);
+						}
+						//one 95% check a battle, so they are independent
+						checks++;
+						if (covers(Battle.probVictory(r, a, d, 1).toDouble(), s.probVictoryInterval(1, MonteCarloBattle.Z95)))
+							covered95++;
+						for (int j = 1; j <= d; j++) {
+							assertCovers(exact.probability(1, j).toDouble(), s.probabilityInterval(1, j, Z), r + " " + a + "x" + d + " (1, " + j + ")");
+						}
+					}
+				}
+			}
+			//about one in twenty should miss, allow twice that
+			assertTrue(covered95 >= 0.9 * checks, covered95 + " of " + checks + " 95% intervals covered");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void sameSeedAnyParallelism() {
+		//not a whole number of chunks, so the last chunk is a short one
+		long trials = 5 * MonteCarloBattle.CHUNK + 123;
+		int[] threads = {1, 2, 3, 8};
+		SimulatedOutcomeDistribution[] s = new SimulatedOutcomeDistribution[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			ForkJoinPool pool = new ForkJoinPool(threads[i]);
+			try {
+				s[i] = MonteCarloBattle.simulate(RuleSet.STANDARD, 12, 9, trials, SEED, pool);
+			} finally {
+				pool.shutdown();
+			}
+		}
+		for (int i = 1; i < threads.length; i++) {
+			String what = threads[i] + " threads against 1";
+			assertEquals(s[0].toString(), s[i].toString(), what);
+			for (int a = 0; a <= 12; a++) {
+				assertEquals(s[0].probability(a, 0), s[i].probability(a, 0), what);
+			}
+			for (int d = 1; d <= 9; d++) {
+				assertEquals(s[0].probability(1, d), s[i].probability(1, d), what);
+			}
+		}
+		//a different seed should not give the same battles
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			assertNotEquals(s[0].toString(), MonteCarloBattle.simulate(RuleSet.STANDARD, 12, 9, trials, SEED + 1, pool).toString());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static boolean covers(double p, double[] interval) {
+		return interval[0] <= p && p <= interval[1];
+	}
+
+	private static void assertCovers(double p, double[] interval, String what) {
+		assertTrue(covers(p, interval), what + ": " + p + " not in [" + interval[0] + ", " + interval[1] + "]");
+	}
+}
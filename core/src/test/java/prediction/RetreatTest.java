@@ -0,0 +1,147 @@
+package prediction;
+import fraction.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks battles fought to a retreat threshold against a brute force
+ * enumeration that rolls out every combination of dice on every roll,
+ * without RuleSet's tables or the cache.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class RetreatTest {
+	private static final int SIZE = 8;
+
+	@Test
+	public void matchesEnumeration() {
+		RuleSet[] rules = {RuleSet.STANDARD, RuleSet.of(8, 6, 3, 2, true), RuleSet.of(4, 6, 2, 3, false)};
+		for (int x = 0; x < rules.length; x++) {
+			RuleSet r = rules[x];
+			for (int k = 1; k <= 5; k++) {
+				Map<Long, Map<Long, Fraction>> memo = new HashMap<Long, Map<Long, Fraction>>();
+				for (int a = 1; a <= SIZE; a++) {
+					for (int d = 1; d <= SIZE; d++) {
+						Map<Long, Fraction> expected = enumerate(r, a, d, k, memo);
+						OutcomeDistribution o = Battle.predictDistribution(r, a, d, k);
+						String what = r + " " + a + "x" + d + " stopping at " + k;
+						assertNotNull(o, what);
+						for (int i = 0; i <= a; i++) {
+							for (int j = 0; j <= d; j++) {
+								Fraction e = expected.get(key(i, j));
+								String want = (e == null) ? "0" : reduced(e);
+								assertEquals(want, reduced(o.probability(i, j)), what + " (" + i + ", " + j + ")");
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void thresholdOneIsFightToTheDeath() {
+		for (int a = 2; a <= SIZE; a++) {
+			for (int d = 1; d <= SIZE; d++) {
+				assertEquals(Battle.predict(a, d).toString(), Battle.predict(a, d, 1).toString(), a + "x" + d);
+			}
+		}
+	}
+
+	/**
+	 * The probability of every end of a battle of a against d stopping at k
+	 * attackers, by (attackers, defenders)
+	 */
+	private static Map<Long, Fraction> enumerate(RuleSet r, int a, int d, int k, Map<Long, Map<Long, Fraction>> memo) {
+		Map<Long, Fraction> ends = memo.get(key(a, d));
+		if (ends != null)
+			return ends;
+		ends = new HashMap<Long, Fraction>();
+		if (a <= k || a < 2 || d == 0) {
+			ends.put(key(a, d), new Fraction(1, 1));
+		} else {
+			int adice = Math.min(a - 1, r.getMaxAttackerDice());
+			int ddice = Math.min(d, r.getMaxDefenderDice());
+			long[] wins = roll(r, adice, ddice);
+			long total = 0;
+			for (int w = 0; w < wins.length; w++) {
+				total += wins[w];
+			}
+			int losses = Math.min(adice, ddice);
+			for (int w = 0; w <= losses; w++) {
+				if (wins[w] == 0)
+					continue;
+				Fraction p = new Fraction(wins[w], total);
+				Map<Long, Fraction> next = enumerate(r, a - (losses - w), d - w, k, memo);
+				for (Map.Entry<Long, Fraction> e : next.entrySet()) {
+					Fraction f = new Fraction(e.getValue());
+					f.multiply(p);
+					Fraction sum = ends.get(e.getKey());
+					if (sum == null)
+						ends.put(e.getKey(), f);
+					else
+						sum.add(f);
+				}
+			}
+		}
+		memo.put(key(a, d), ends);
+		return ends;
+	}
+
+	/**
+	 * Counts every roll of adice against ddice dice by the attacker's wins
+	 */
+	private static long[] roll(RuleSet r, int adice, int ddice) {
+		int[] av = new int[adice];
+		int[] dv = new int[ddice];
+		long[] wins = new long[Math.min(adice, ddice) + 1];
+		long rolls = pow(r.getAttackerSides(), adice) * pow(r.getDefenderSides(), ddice);
+		for (long n = 0; n < rolls; n++) {
+			long t = n;
+			for (int i = 0; i < adice; i++) {
+				av[i] = (int)(t % r.getAttackerSides()) + 1;
+				t /= r.getAttackerSides();
+			}
+			for (int i = 0; i < ddice; i++) {
+				dv[i] = (int)(t % r.getDefenderSides()) + 1;
+				t /= r.getDefenderSides();
+			}
+			int[] as = av.clone();
+			int[] ds = dv.clone();
+			Arrays.sort(as);
+			Arrays.sort(ds);
+			int w = 0;
+			for (int i = 0; i < wins.length - 1; i++) {
+				int x = as[adice - 1 - i];
+				int y = ds[ddice - 1 - i];
+				if (x > y || (x == y && r.attackerWinsTies()))
+					w++;
+			}
+			wins[w]++;
+		}
+		return wins;
+	}
+
+	private static long pow(long a, int b) {
+		long p = 1;
+		for (int i = 0; i < b; i++) {
+			p *= a;
+		}
+		return p;
+	}
+
+	private static Long key(int a, int d) {
+		return Long.valueOf(((long)a << 32) | d);
+	}
+
+	private static String reduced(Fraction f) {
+		Fraction g = new Fraction(f);
+		g.reduce();
+		return g.toString(Fraction.PRINT_FRACTION);
+	}
+}
@@ -0,0 +1,33 @@
+package prediction;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asking RuleSet.of() for the same rules twice must give the same rule set,
+ * and the standard rules must give STANDARD.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class RuleSetTest {
+	@Test
+	public void standardIsShared() {
+		assertSame(RuleSet.STANDARD, RuleSet.of(6, 6, 3, 2, false));
+	}
+
+	@Test
+	public void sameRulesShared() {
+		RuleSet r = RuleSet.of(8, 6, 3, 2, true);
+		assertSame(r, RuleSet.of(8, 6, 3, 2, true));
+		assertEquals(r.id, RuleSet.of(8, 6, 3, 2, true).cacheId(1));
+		assertNotSame(r, RuleSet.of(8, 6, 3, 2, false));
+		assertNotSame(r, RuleSet.of(6, 8, 3, 2, true));
+	}
+
+	@Test
+	public void badRulesNotShared() {
+		assertThrows(RuntimeException.class, () -> RuleSet.of(0, 6, 3, 2, false));
+		assertThrows(RuntimeException.class, () -> RuleSet.of(0, 6, 3, 2, false));
+	}
+}
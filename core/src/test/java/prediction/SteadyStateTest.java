@@ -0,0 +1,58 @@
+package prediction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The closed form must give the same fractions as the row by row
+ * calculation, so a battle prints the same whichever way it got into the
+ * cache.
+ *
+ * @author Eric Stein <eastein@wpi.edu>
+ * Copyright (c) 2005 Eric Stein.  Licensed under the GNU Public License, Version 2.
+ * The GPL is included in this program distribution in gpl.txt.
+ */
+public class SteadyStateTest {
+	@BeforeEach
+	public void setUp() {
+		Battle.clearCache();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		Battle.clearCache();
+	}
+
+	@Test
+	public void coldAndPrecomputedPrintTheSame() {
+		//big enough for the closed form when asked for cold
+		assertTrue(64 * 64 >= Battle.STEADY_CELLS);
+		String cold = Battle.predict(64, 64).toString();
+		Battle.clearCache();
+		Battle.precompute(64, 64);
+		String precomputed = Battle.predict(64, 64).toString();
+		assertEquals(cold, precomputed);
+		assertEquals(Battle.predictUncached(64, 64).toString(), cold);
+	}
+
+	@Test
+	public void closedFormMatchesRows() {
+		RuleSet[] rules = {
+			RuleSet.STANDARD,
+			new RuleSet(8, 6, 3, 2, false),
+			new RuleSet(6, 4, 3, 2, true),
+			new RuleSet(12, 6, 2, 2, false)
+		};
+		for (int k = 0; k < rules.length; k++) {
+			RuleSet r = rules[k];
+			for (int a = 4; a <= 40; a += 6) {
+				for (int d = 2; d <= 40; d += 7) {
+					OutcomeDistribution o = Battle.predictClosedForm(r, a, d);
+					assertNotNull(o, r + " " + a + "x" + d);
+					assertEquals(Battle.predictUncached(r, a, d).toString(), o.toOutcomeSet().toString(), r + " " + a + "x" + d);
+				}
+			}
+		}
+	}
+}